@@ -16,20 +16,36 @@
  *  See the License for the specific language governing permissions and
  *  limitations under the License.
  */
-
 package net.william278.velocitab.api;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.velocitypowered.api.event.EventManager;
 import com.velocitypowered.api.proxy.Player;
 import lombok.RequiredArgsConstructor;
 import net.kyori.adventure.text.Component;
 import net.william278.velocitab.Velocitab;
 import net.william278.velocitab.player.TabPlayer;
+import net.william278.velocitab.tab.PlayerTabList;
+import net.william278.velocitab.util.DebugSystem;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.event.Level;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Utility class responsible for firing Velocitab API events with timeout protection
@@ -38,6 +54,15 @@ import java.util.concurrent.TimeoutException;
  * <p>If a listener does not complete within {@link #EVENT_TIMEOUT_MS} milliseconds, the
  * original (pre-event) component values are used and a warning is logged.</p>
  *
+ * <p>Events without any subscribed listener are not fired at all. Display name events of an update cycle are
+ * collected with {@link #batchDisplayNameEvents(Runnable)} and fired together, their results are applied on the
+ * TAB list thread once every listener completed, so the update cycle never waits for listeners. Header and footer
+ * events are fired the same way. Each asynchronous result is numbered, and a result is dropped if a newer one was
+ * requested for the same entry in the meantime, so a slow listener can't overwrite a newer value.</p>
+ *
+ * <p>Team update events are still awaited for up to {@link #EVENT_TIMEOUT_MS} milliseconds, as the nametag packet
+ * shared between viewers depends on whether a listener changed it.</p>
+ *
  * @since 1.6.9
  */
 @RequiredArgsConstructor
@@ -49,8 +74,55 @@ public class EventDispatcher {
      */
     public static final long EVENT_TIMEOUT_MS = 50;
 
+    private static final Class<?> MANAGER_CLASS;
+    private static final MethodHandle MANAGER$handlersCache;
+    private static final MethodHandle CACHE$get;
+
+    static {
+        Class<?> managerClass = null;
+        MethodHandle handlersCache = null;
+        MethodHandle get = null;
+        try {
+            managerClass = Class.forName("com.velocitypowered.proxy.event.VelocityEventManager");
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(managerClass, MethodHandles.lookup());
+            final Field field = managerClass.getDeclaredField("handlersCache");
+            handlersCache = lookup.unreflectGetter(field);
+            get = lookup.findVirtual(field.getType(), "get", MethodType.methodType(Object.class, Object.class));
+        } catch (Throwable e) {
+            DebugSystem.log(DebugSystem.DebugLevel.WARNING, "Event listener lookup is unavailable, API events are always fired");
+            managerClass = null;
+        }
+        MANAGER_CLASS = managerClass;
+        MANAGER$handlersCache = handlersCache;
+        CACHE$get = get;
+    }
+
     @NotNull
     private final Velocitab plugin;
+    private final ThreadLocal<List<PendingDisplayName>> displayNameBatch = new ThreadLocal<>();
+    private final AtomicLong sequence = new AtomicLong();
+    // The number of the latest asynchronous result requested for each entry, removed once it's applied
+    private final Map<Entry, Long> latest = Maps.newConcurrentMap();
+
+    /**
+     * Check whether any listener is subscribed to an event
+     *
+     * @param eventType the event class
+     * @return {@code false} only if no listener is subscribed, {@code true} if there is one or it can't be determined
+     */
+    public boolean hasListeners(@NotNull Class<?> eventType) {
+        final EventManager eventManager = plugin.getServer().getEventManager();
+        if (MANAGER_CLASS == null || !MANAGER_CLASS.isInstance(eventManager)) {
+            return true;
+        }
+
+        try {
+            // Velocity caches the handlers of each event type, null if it has none
+            return CACHE$get.invoke(MANAGER$handlersCache.invoke(eventManager), eventType) != null;
+        } catch (Throwable e) {
+            return true;
+        }
+    }
 
     /**
      * Fires a {@link TabDisplayNameEvent} and returns the (possibly modified) display name.
@@ -66,6 +138,10 @@ public class EventDispatcher {
     @NotNull
     public Component fireDisplayNameEvent(@NotNull TabPlayer player, @NotNull TabPlayer viewer,
                                           @NotNull Component displayName) {
+        if (!hasListeners(TabDisplayNameEvent.class)) {
+            return displayName;
+        }
+
         final TabDisplayNameEvent event = new TabDisplayNameEvent(player, viewer, displayName);
         try {
             plugin.getServer().getEventManager()
@@ -82,6 +158,110 @@ public class EventDispatcher {
         }
     }
 
+    /**
+     * Fires a {@link TabDisplayNameEvent} without waiting for its listeners.
+     *
+     * <p>Without listeners the callback is run immediately with the given display name. Otherwise the event joins
+     * the current {@link #batchDisplayNameEvents(Runnable) batch}, if any, and the callback is run on the TAB list
+     * thread with the (possibly modified) display name once the listeners completed.</p>
+     *
+     * @param player      the player whose display name is being set
+     * @param viewer      the player who will see the entry
+     * @param displayName the pre-computed display name (snapshot)
+     * @param callback    applies the display name to use
+     */
+    public void fireDisplayNameEvent(@NotNull TabPlayer player, @NotNull TabPlayer viewer,
+                                     @NotNull Component displayName, @NotNull Consumer<Component> callback) {
+        final Entry entry = new Entry(player.getPlayer().getUniqueId(), viewer.getPlayer().getUniqueId());
+        if (!hasListeners(TabDisplayNameEvent.class)) {
+            // Drop a pending result which would overwrite this one
+            latest.remove(entry);
+            callback.accept(displayName);
+            return;
+        }
+
+        final PendingDisplayName pending = new PendingDisplayName(
+                new TabDisplayNameEvent(player, viewer, displayName), displayName, callback, entry, next(entry));
+        final List<PendingDisplayName> batch = displayNameBatch.get();
+        if (batch != null) {
+            batch.add(pending);
+            return;
+        }
+        fireDisplayNameEvents(List.of(pending));
+    }
+
+    /**
+     * Run an update cycle, firing the display name events it creates together once it completes.
+     * Nested calls join the outermost batch.
+     *
+     * @param runnable the update cycle
+     */
+    public void batchDisplayNameEvents(@NotNull Runnable runnable) {
+        if (displayNameBatch.get() != null) {
+            runnable.run();
+            return;
+        }
+
+        final List<PendingDisplayName> batch = Lists.newArrayList();
+        displayNameBatch.set(batch);
+        try {
+            runnable.run();
+        } finally {
+            displayNameBatch.remove();
+            if (!batch.isEmpty()) {
+                fireDisplayNameEvents(batch);
+            }
+        }
+    }
+
+    private void fireDisplayNameEvents(@NotNull List<PendingDisplayName> batch) {
+        final AtomicInteger timedOut = new AtomicInteger();
+        final List<CompletableFuture<Component>> results = batch.stream()
+                .map(pending -> plugin.getServer().getEventManager()
+                        .fire(pending.event())
+                        .orTimeout(EVENT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                        .handle((event, e) -> {
+                            if (e == null) {
+                                return event.getDisplayName();
+                            }
+                            if (e instanceof TimeoutException) {
+                                timedOut.incrementAndGet();
+                            } else {
+                                plugin.log(Level.ERROR, "Error firing TabDisplayNameEvent", e);
+                            }
+                            return pending.displayName();
+                        }))
+                .toList();
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            if (timedOut.get() > 0) {
+                plugin.log(Level.WARN, "%d TabDisplayNameEvent(s) timed out after %dms, using original values"
+                        .formatted(timedOut.get(), EVENT_TIMEOUT_MS));
+            }
+
+            final PlayerTabList tabList = plugin.getTabList();
+            tabList.getTaskManager().run(() -> tabList.getUpdateBuffer().batch(() -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    final PendingDisplayName pending = batch.get(i);
+                    if (isLatest(pending.entry(), pending.sequence())) {
+                        pending.callback().accept(results.get(i).join());
+                    }
+                }
+            }));
+        });
+    }
+
+    private long next(@NotNull Entry entry) {
+        final long next = sequence.incrementAndGet();
+        latest.put(entry, next);
+        return next;
+    }
+
+    // Whether a result is the latest requested for its entry, forgetting the entry if so
+    private boolean isLatest(@NotNull Entry entry, long sequence) {
+        return latest.remove(entry, sequence);
+    }
+
     /**
      * Fires a {@link TabHeaderFooterEvent} and returns the (possibly modified) header and footer
      * as a two-element array {@code [header, footer]}.
@@ -98,6 +278,10 @@ public class EventDispatcher {
     public Component[] fireHeaderFooterEvent(@NotNull TabPlayer player,
                                              @NotNull Component header,
                                              @NotNull Component footer) {
+        if (!hasListeners(TabHeaderFooterEvent.class)) {
+            return new Component[]{header, footer};
+        }
+
         final TabHeaderFooterEvent event = new TabHeaderFooterEvent(player, header, footer);
         try {
             plugin.getServer().getEventManager()
@@ -114,6 +298,51 @@ public class EventDispatcher {
         }
     }
 
+    /**
+     * Fires a {@link TabHeaderFooterEvent} without waiting for its listeners.
+     *
+     * <p>Without listeners the callback is run immediately with the given header and footer. Otherwise it is run on
+     * the worker of the player's group once the listeners completed, with the (possibly modified) values, or the
+     * original values on timeout or exception. It is not run if a newer header and footer were fired meanwhile.</p>
+     *
+     * @param player   the player who will receive the header/footer
+     * @param header   the pre-computed header component (snapshot)
+     * @param footer   the pre-computed footer component (snapshot)
+     * @param callback applies the header and footer to use
+     */
+    public void fireHeaderFooterEvent(@NotNull TabPlayer player, @NotNull Component header, @NotNull Component footer,
+                                      @NotNull BiConsumer<Component, Component> callback) {
+        final Entry entry = new Entry(player.getPlayer().getUniqueId(), null);
+        if (!hasListeners(TabHeaderFooterEvent.class)) {
+            latest.remove(entry);
+            callback.accept(header, footer);
+            return;
+        }
+
+        final long sequence = next(entry);
+        final TabHeaderFooterEvent event = new TabHeaderFooterEvent(player, header, footer);
+        plugin.getServer().getEventManager()
+                .fire(event)
+                .orTimeout(EVENT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .handle((fired, e) -> {
+                    if (e instanceof TimeoutException) {
+                        plugin.log(Level.WARN, "TabHeaderFooterEvent timed out after %dms, using original values"
+                                .formatted(EVENT_TIMEOUT_MS));
+                    } else if (e != null) {
+                        plugin.log(Level.ERROR, "Error firing TabHeaderFooterEvent", e);
+                    }
+                    final Component[] result = e == null
+                            ? new Component[]{fired.getHeader(), fired.getFooter()}
+                            : new Component[]{header, footer};
+                    plugin.getTabList().getTaskManager().run(player.getGroup(), () -> {
+                        if (isLatest(entry, sequence)) {
+                            callback.accept(result[0], result[1]);
+                        }
+                    });
+                    return null;
+                });
+    }
+
     /**
      * Fires a {@link TabTeamUpdateEvent} and returns the (possibly modified) event.
      *
@@ -135,6 +364,10 @@ public class EventDispatcher {
                                                   @Nullable Component displayName,
                                                   @NotNull TabTeamUpdateEvent.Mode mode) {
         final TabTeamUpdateEvent event = new TabTeamUpdateEvent(player, viewer, prefix, suffix, displayName, mode);
+        if (!hasListeners(TabTeamUpdateEvent.class)) {
+            return event;
+        }
+
         try {
             plugin.getServer().getEventManager()
                     .fire(event)
@@ -151,4 +384,12 @@ public class EventDispatcher {
         }
     }
 
+    private record PendingDisplayName(@NotNull TabDisplayNameEvent event, @NotNull Component displayName,
+                                      @NotNull Consumer<Component> callback, @NotNull Entry entry, long sequence) {
+    }
+
+    // A TAB list entry seen by a viewer, or the header and footer of a player if the viewer is null
+    private record Entry(@NotNull UUID player, @Nullable UUID viewer) {
+    }
+
 }
@@ -35,6 +35,7 @@ import net.william278.velocitab.Velocitab;
 import net.william278.velocitab.config.Group;
 import net.william278.velocitab.config.Settings;
 import net.william278.velocitab.config.TabGroups;
+import net.william278.velocitab.placeholder.PlaceholderRequestTracker;
 import net.william278.velocitab.player.TabPlayer;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.event.Level;
@@ -299,6 +300,54 @@ public final class VelocitabCommand {
                                                 ctx.getSource().sendMessage(component);
                                             });
 
+                                            return Command.SINGLE_SUCCESS;
+                                        })
+                                )
+                        )
+                        .then(LiteralArgumentBuilder.<CommandSource>literal("placeholders")
+                                .then(RequiredArgumentBuilder.<CommandSource, String>argument("player", StringArgumentType.string())
+                                        .suggests((ctx, builder1) -> {
+                                            final String input = builder1.getRemainingLowerCase();
+                                            plugin.getServer().getAllPlayers().stream()
+                                                    .map(Player::getUsername)
+                                                    .filter(s -> input.isEmpty() || s.toLowerCase().contains(input))
+                                                    .forEach(builder1::suggest);
+                                            return builder1.buildFuture();
+                                        })
+                                        .executes(ctx -> {
+                                            final String input = ctx.getArgument("player", String.class);
+                                            final Optional<Player> player = plugin.getServer().getPlayer(input);
+                                            if (player.isEmpty()) {
+                                                ctx.getSource().sendRichMessage(errorPlayerNotFound
+                                                        .replaceAll("%name%", input));
+                                                return Command.SINGLE_SUCCESS;
+                                            }
+
+                                            final Map<String, PlaceholderRequestTracker.RequestSnapshot> states = plugin.getPlaceholderManager()
+                                                    .getRequestTracker().getStates(player.get().getUniqueId());
+                                            ctx.getSource().sendMessage(MiniMessage.miniMessage().deserialize("<yellow>Backend placeholders:</yellow> <gray>%s"
+                                                    .formatted(states.size())));
+                                            states.forEach((placeholder, state) -> {
+                                                final Component hover = MiniMessage.miniMessage().deserialize("<yellow>In flight:</yellow> <gray>%s</gray>"
+                                                        .formatted(state.inFlight()))
+                                                        .appendNewline()
+                                                        .append(MiniMessage.miniMessage().deserialize("<yellow>Failures:</yellow> <gray>%s</gray>"
+                                                                .formatted(state.failures())))
+                                                        .appendNewline()
+                                                        .append(MiniMessage.miniMessage().deserialize("<yellow>Retry in:</yellow> <gray>%sms</gray>"
+                                                                .formatted(state.backoff())))
+                                                        .appendNewline()
+                                                        .append(MiniMessage.miniMessage().deserialize("<yellow>Last request:</yellow> <gray>%sms</gray>"
+                                                                .formatted(state.lastDuration())));
+
+                                                final Component component = Component.text(placeholder)
+                                                        .color(TextColor.color(0xAAAAAA))
+                                                        .append(MiniMessage.miniMessage().deserialize(" <yellow>-</yellow> <gray>%s"
+                                                                .formatted(state.status().name().toLowerCase(Locale.ENGLISH))))
+                                                        .hoverEvent(hover);
+                                                ctx.getSource().sendMessage(component);
+                                            });
+
                                             return Command.SINGLE_SUCCESS;
                                         })
                                 )
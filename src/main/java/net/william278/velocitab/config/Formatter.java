@@ -19,6 +19,11 @@
 
 package net.william278.velocitab.config;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import de.themoep.minedown.adventure.MineDown;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
@@ -31,6 +36,8 @@ import net.william278.velocitab.util.SerializationUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
@@ -66,6 +73,8 @@ public enum Formatter {
             SerializationUtil.LEGACY_SERIALIZER::serialize
     );
 
+    // Total length of the cached texts, so a few huge headers can't crowd out the cache
+    private static final long MAX_CACHE_WEIGHT = 1 << 20;
 
     /**
      * Name of the formatter
@@ -82,6 +91,10 @@ public enum Formatter {
     private final Function<String, String> escaper;
     private final Function<String, Component> emptyFormatter;
     private final Function<Component, String> serializer;
+    /**
+     * Formatted components of texts whose output doesn't depend on the player
+     */
+    private final Cache<String, Component> cache;
 
     Formatter(@NotNull QuadFunction<String, TabPlayer, TabPlayer, Velocitab, Component> formatter, @NotNull Function<String, String> escaper,
               @NotNull String name, @NotNull Function<String, Component> emptyFormatter, @NotNull Function<Component, String> serializer) {
@@ -90,6 +103,12 @@ public enum Formatter {
         this.name = name;
         this.emptyFormatter = emptyFormatter;
         this.serializer = serializer;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(MAX_CACHE_WEIGHT)
+                .weigher((String text, Component component) -> text.length())
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
     }
 
     /**
@@ -104,7 +123,17 @@ public enum Formatter {
      */
     @NotNull
     public Component format(@NotNull String text, @NotNull TabPlayer player, @Nullable TabPlayer tabPlayer, @NotNull Velocitab plugin) {
-        return formatter.apply(text, player, tabPlayer, plugin);
+        if (!isCacheable(text, plugin)) {
+            return formatter.apply(text, player, tabPlayer, plugin);
+        }
+
+        // Loading atomically keeps a single component per text, which the component holder cache is keyed by
+        try {
+            return cache.get(text, () -> formatter.apply(text, player, tabPlayer, plugin));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException("Failed to format text", e.getCause());
+        }
     }
 
     /**
@@ -118,7 +147,30 @@ public enum Formatter {
      */
     @NotNull
     public Component format(@NotNull String text, @NotNull TabPlayer player, @NotNull Velocitab plugin) {
-        return formatter.apply(text, player, null, plugin);
+        return format(text, player, null, plugin);
+    }
+
+    // MiniPlaceholders tags are resolved per player, so texts containing them can't be shared
+    private boolean isCacheable(@NotNull String text, @NotNull Velocitab plugin) {
+        return this != MINIMESSAGE || plugin.getMiniPlaceholdersHook().isEmpty()
+               || !MiniMessageUtil.getINSTANCE().hasCustomTags(text);
+    }
+
+    /**
+     * Get the hit and miss statistics of the formatted component cache
+     *
+     * @return The cache statistics
+     */
+    @NotNull
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Clear the formatted component cache
+     */
+    public void invalidateCache() {
+        cache.invalidateAll();
     }
 
     @NotNull
@@ -26,6 +26,7 @@ import net.william278.velocitab.Velocitab;
 import net.william278.velocitab.placeholder.PlaceholderReplacement;
 import net.william278.velocitab.player.TabPlayer;
 import net.william278.velocitab.tab.Nametag;
+import net.william278.velocitab.tab.PlayerIndex;
 import net.william278.velocitab.util.StringUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -49,11 +50,13 @@ public record Group(
         Set<String> servers,
         List<String> sortingPlaceholders,
         Map<String, List<PlaceholderReplacement>> placeholderReplacements,
+        Map<String, String> placeholderRefreshPolicies,
         boolean collisions,
         int headerFooterUpdateRate,
         int formatUpdateRate,
         int nametagUpdateRate,
         int placeholderUpdateRate,
+        int latencyUpdateRate,
         boolean onlyListPlayersInSameServer
 ) {
 
@@ -119,12 +122,17 @@ public record Group(
 
     @NotNull
     public List<Player> getPlayers(@NotNull Velocitab plugin) {
+        final PlayerIndex index = plugin.getTabList().getPlayerIndex();
         final List<Player> players = Lists.newArrayList();
         for (RegisteredServer server : registeredServers(plugin)) {
-            players.addAll(server.getPlayersConnected());
+            for (Player player : index.getConnectedPlayers(server.getServerInfo().getName())) {
+                if (player.isActive()) {
+                    players.add(player);
+                }
+            }
         }
 
-        return players.stream().filter(Player::isActive).collect(Collectors.toList());
+        return players;
     }
 
     @NotNull
@@ -135,7 +143,8 @@ public record Group(
 
         if (onlyListPlayersInSameServer) {
             return tabPlayer.getPlayer().getCurrentServer()
-                    .map(s -> Lists.newArrayList(s.getServer().getPlayersConnected()))
+                    .map(s -> Lists.newArrayList(plugin.getTabList().getPlayerIndex()
+                            .getConnectedPlayers(s.getServerInfo().getName())))
                     .orElseGet(Lists::newArrayList);
         }
 
@@ -148,14 +157,10 @@ public record Group(
 
     public List<TabPlayer> getTabPlayers(@NotNull Velocitab plugin, boolean allGroups) {
         if (allGroups && plugin.getSettings().isShowAllPlayersFromAllGroups()) {
-            return plugin.getTabList().getPlayers().values().stream().filter(TabPlayer::isLoaded).collect(Collectors.toList());
+            return plugin.getTabList().getPlayerIndex().getAllPlayers();
         }
 
-        return plugin.getTabList().getPlayers()
-                .values()
-                .stream()
-                .filter(tabPlayer -> tabPlayer.isLoaded() && tabPlayer.getGroup().equals(this) && tabPlayer.getPlayer().isActive())
-                .collect(Collectors.toList());
+        return plugin.getTabList().getPlayerIndex().getGroupPlayers(name);
     }
 
     @NotNull
@@ -166,14 +171,23 @@ public record Group(
     @NotNull
     public List<TabPlayer> getTabPlayers(@NotNull Velocitab plugin, @NotNull TabPlayer tabPlayer, boolean force) {
         if (plugin.getSettings().isShowAllPlayersFromAllGroups()) {
-            return plugin.getTabList().getPlayers().values().stream().filter(TabPlayer::isLoaded).collect(Collectors.toList());
+            return plugin.getTabList().getPlayerIndex().getAllPlayers();
         }
 
         if (onlyListPlayersInSameServer) {
-            return plugin.getTabList().getPlayers()
-                    .values()
+            // Players which are still loading aren't indexed yet, but are already connected
+            if (force) {
+                return plugin.getTabList().getPlayerIndex().getConnectedPlayers(tabPlayer.getServerName())
+                        .stream()
+                        .map(player -> plugin.getTabList().getTabPlayer(player))
+                        .flatMap(Optional::stream)
+                        .filter(player -> player.getGroup().equals(this))
+                        .collect(Collectors.toList());
+            }
+
+            return plugin.getTabList().getPlayerIndex().getServerPlayers(tabPlayer.getServerName())
                     .stream()
-                    .filter(player -> (player.isLoaded() || force) && player.getGroup().equals(this) && tabPlayer.getPlayer().isActive() && player.getServerName().equals(tabPlayer.getServerName()))
+                    .filter(player -> player.getGroup().equals(this))
                     .collect(Collectors.toList());
         }
 
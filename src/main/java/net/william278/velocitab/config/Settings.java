@@ -72,6 +72,9 @@ public class Settings implements ConfigValidator {
     @Comment("How long in seconds to cache PAPI placeholders for, in milliseconds. (0 to disable)")
     private long papiCacheTime = 30000;
 
+    @Comment("Whether to request all of a player's PAPIProxyBridge placeholders at once, instead of one request per placeholder.")
+    private boolean batchPapiRequests = true;
+
     @Comment("If you are using MINIMESSAGE formatting, enable this to support MiniPlaceholders in formatting.")
     private boolean enableMiniPlaceholdersHook = true;
 
@@ -98,6 +101,32 @@ public class Settings implements ConfigValidator {
     @Comment("Whether to enable relational placeholders. With an high amount of players, this could cause lag.")
     private boolean enableRelationalPlaceholders = false;
 
+    @Comment("How often, in milliseconds, every TAB list name is fully re-rendered. In between, only names whose"
+            + "\nplaceholders, role, custom name, team color, group or vanish state changed are updated. (0 to always re-render)")
+    private long displayNameReconciliationRate = 30000;
+
+    @Comment("Whether to send every latency change to clients. When disabled, latency is only re-sent once it moves"
+            + "\ninto another signal bar, as that is all the client displays.")
+    private boolean sendExactLatency = false;
+
+    @Comment("How far, in milliseconds, latency has to move past a signal bar boundary before it is re-sent. Prevents"
+            + "\nflickering for players close to a boundary. Not used when sending exact latency.")
+    private int latencyHysteresis = 25;
+
+    @Comment("How many threads the periodic updates of the groups are spread across. Each group is always updated by"
+            + "\nthe same thread. Increase this on large proxies with many busy groups. Requires a restart to apply.")
+    private int taskManagerThreads = 1;
+
+    @Comment("The longest time, in milliseconds, a player connecting to a server waits for the placeholders of their group"
+            + "\nto resolve before being added to the TAB list. Players are added once every placeholder resolved, but never"
+            + "\nsooner than 400-500ms after connecting.")
+    private long joinDeadline = 500;
+
+    @Comment("Whether to lower the TAB list quality while updates take longer than their update rate, restoring it once"
+            + "\nthere is headroom again. Step by step, format, nametag and header/footer updates are slowed down, relational"
+            + "\nplaceholders are rendered like normal placeholders and header/footer animations are paused.")
+    private boolean adaptiveQuality = false;
+
     @Comment({"A list of links that will be sent to display on player pause menus (Minecraft 1.21+ clients only).",
             "• Labels can be fully custom or built-in (one of 'bug_report', 'community_guidelines', 'support', 'status',",
             "  'feedback', 'community', 'website', 'forums', 'news', or 'announcements').",
@@ -122,6 +151,18 @@ public class Settings implements ConfigValidator {
         if (papiCacheTime < 0) {
             throw new IllegalStateException("PAPI cache time must be greater than or equal to 0");
         }
+        if (displayNameReconciliationRate < 0) {
+            throw new IllegalStateException("Display name reconciliation rate must be greater than or equal to 0");
+        }
+        if (joinDeadline < 0) {
+            throw new IllegalStateException("Join deadline must be greater than or equal to 0");
+        }
+        if (taskManagerThreads < 1) {
+            throw new IllegalStateException("Task manager threads must be greater than or equal to 1");
+        }
+        if (latencyHysteresis < 0) {
+            throw new IllegalStateException("Latency hysteresis must be greater than or equal to 0");
+        }
         serverLinks.forEach(ServerUrl::validate);
     }
 
@@ -55,11 +55,13 @@ public class TabGroups implements ConfigValidator {
             Set.of("lobby", "survival", "creative", "minigames", "skyblock", "prison", "hub"),
             List.of("%role_weight%", "%username_lower%"),
             Map.of(),
+            Map.of(),
             false,
             1000,
             1000,
             1000,
             1000,
+            5000,
             false
     );
 
@@ -121,6 +123,10 @@ public class TabGroups implements ConfigValidator {
                 missingKeys.put(group, "placeholderReplacements");
             }
 
+            if (group.placeholderRefreshPolicies() == null) {
+                missingKeys.put(group, "placeholderRefreshPolicies");
+            }
+
             if (group.headerFooterUpdateRate() == 0) {
                 missingKeys.put(group, "headerFooterUpdateRate");
             }
@@ -136,6 +142,10 @@ public class TabGroups implements ConfigValidator {
             if (group.placeholderUpdateRate() == 0) {
                 missingKeys.put(group, "placeholderUpdateRate");
             }
+
+            if (group.latencyUpdateRate() == 0) {
+                missingKeys.put(group, "latencyUpdateRate");
+            }
         }
 
         return missingKeys;
@@ -157,11 +167,13 @@ public class TabGroups implements ConfigValidator {
                     group.servers() == null ? DEFAULT_GROUP.servers() : group.servers(),
                     group.sortingPlaceholders() == null ? DEFAULT_GROUP.sortingPlaceholders() : group.sortingPlaceholders(),
                     group.placeholderReplacements() == null ? DEFAULT_GROUP.placeholderReplacements() : group.placeholderReplacements(),
+                    group.placeholderRefreshPolicies() == null ? DEFAULT_GROUP.placeholderRefreshPolicies() : group.placeholderRefreshPolicies(),
                     group.collisions(),
                     group.headerFooterUpdateRate() == 0 ? DEFAULT_GROUP.headerFooterUpdateRate() : group.headerFooterUpdateRate(),
                     group.formatUpdateRate() == 0 ? DEFAULT_GROUP.formatUpdateRate() : group.formatUpdateRate(),
                     group.nametagUpdateRate() == 0 ? DEFAULT_GROUP.nametagUpdateRate() : group.nametagUpdateRate(),
                     group.placeholderUpdateRate() == 0 ? DEFAULT_GROUP.placeholderUpdateRate() : group.placeholderUpdateRate(),
+                    group.latencyUpdateRate() == 0 ? DEFAULT_GROUP.latencyUpdateRate() : group.latencyUpdateRate(),
                     group.onlyListPlayersInSameServer()
             );
 
@@ -99,29 +99,37 @@ public class LuckPermsHook extends Hook {
             return;
         }
 
+        // Static placeholders such as the prefix depend on the recalculated data
+        plugin.getPlaceholderManager().invalidatePlaceholders(event.getUser().getUniqueId());
+
         final PlayerTabList tabList = plugin.getTabList();
         plugin.getServer().getPlayer(event.getUser().getUniqueId())
-                .ifPresent(player -> tabList.getTaskManager().runDelayed(() -> {
+                .ifPresent(player -> tabList.getTaskManager().runDelayed(player.getUniqueId(), () -> {
                     final Optional<TabPlayer> tabPlayerOptional = tabList.getTabPlayer(player);
                     if (tabPlayerOptional.isEmpty()) {
                         return;
                     }
 
                     final TabPlayer tabPlayer = tabPlayerOptional.get();
-                    final Role oldRole = tabPlayer.getRole();
-                    final Role newRole = getRoleFromMetadata(event.getUser().getCachedData().getMetaData());
+                    tabList.getTaskManager().run(tabPlayer.getGroup(), () -> updateRole(event, player, tabPlayer));
+                }, 100, TimeUnit.MILLISECONDS));
+    }
 
-                    // there is no need to handle the case where the player had the permission and now doesn't
-                    if (oldRole.equals(newRole) && (player.hasPermission(PlayerTabList.RELATIONAL_PERMISSION) == tabPlayer.isRelationalPermission())) {
-                        return;
-                    }
+    private void updateRole(@NotNull UserDataRecalculateEvent event, @NotNull Player player, @NotNull TabPlayer tabPlayer) {
+        final PlayerTabList tabList = plugin.getTabList();
+        final Role oldRole = tabPlayer.getRole();
+        final Role newRole = getRoleFromMetadata(event.getUser().getCachedData().getMetaData());
 
-                    tabPlayer.setRole(newRole);
-                    tabPlayer.setRelationalPermission(player.hasPermission(PlayerTabList.RELATIONAL_PERMISSION));
-                    tabList.updateDisplayName(tabPlayer);
-                    tabList.getVanishTabList().recalculateVanishForPlayer(tabPlayer);
-                    checkRoleUpdate(tabPlayer, oldRole);
-                }, 100, TimeUnit.MILLISECONDS));
+        // there is no need to handle the case where the player had the permission and now doesn't
+        if (oldRole.equals(newRole) && (player.hasPermission(PlayerTabList.RELATIONAL_PERMISSION) == tabPlayer.isRelationalPermission())) {
+            return;
+        }
+
+        tabPlayer.setRole(newRole);
+        tabPlayer.setRelationalPermission(player.hasPermission(PlayerTabList.RELATIONAL_PERMISSION));
+        tabList.updateDisplayName(tabPlayer);
+        tabList.getVanishTabList().recalculateVanishForPlayer(tabPlayer);
+        checkRoleUpdate(tabPlayer, oldRole);
     }
 
     // Get a group by name
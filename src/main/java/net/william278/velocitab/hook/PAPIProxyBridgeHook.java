@@ -19,15 +19,23 @@
 
 package net.william278.velocitab.hook;
 
+import com.google.common.collect.Lists;
 import com.velocitypowered.api.proxy.Player;
 import net.william278.papiproxybridge.api.PlaceholderAPI;
 import net.william278.velocitab.Velocitab;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 public class PAPIProxyBridgeHook extends Hook {
 
+    // Private-use characters delimiting the entries of a batched request
+    private static final char BATCH_ENTRY = '\uE000';
+    private static final char BATCH_VALUE = '\uE001';
+
     private final PlaceholderAPI api;
 
     public PAPIProxyBridgeHook(@NotNull Velocitab plugin) {
@@ -41,4 +49,57 @@ public class PAPIProxyBridgeHook extends Hook {
         return api.formatPlaceholders(input, player.getUniqueId());
     }
 
+    /**
+     * Format several inputs for a player with a single request.
+     * <p>
+     * The inputs are joined with private-use characters as delimiters, so the result can be split back up.
+     * If a formatted value contains one of those characters the result can't be decoded, and the future
+     * completes with an empty optional.
+     *
+     * @param inputs The inputs to format
+     * @param player The player to format the inputs for
+     * @return The formatted inputs, in the same order
+     */
+    public CompletableFuture<Optional<List<String>>> formatPlaceholders(@NotNull List<String> inputs, @NotNull Player player) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < inputs.size(); i++) {
+            builder.append(BATCH_ENTRY).append(i).append(BATCH_VALUE).append(inputs.get(i));
+        }
+        builder.append(BATCH_ENTRY);
+
+        return api.formatPlaceholders(builder.toString(), player.getUniqueId())
+                .thenApply(result -> decodeBatch(result, inputs.size()));
+    }
+
+    @NotNull
+    private static Optional<List<String>> decodeBatch(@Nullable String result, int size) {
+        if (result == null || !result.endsWith(String.valueOf(BATCH_ENTRY))) {
+            return Optional.empty();
+        }
+
+        final List<String> values = Lists.newArrayListWithCapacity(size);
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            if (index >= result.length() || result.charAt(index) != BATCH_ENTRY) {
+                return Optional.empty();
+            }
+
+            final int valueStart = result.indexOf(BATCH_VALUE, index);
+            final int valueEnd = result.indexOf(BATCH_ENTRY, index + 1);
+            if (valueStart == -1 || valueEnd == -1 || valueStart > valueEnd
+                    || !result.substring(index + 1, valueStart).equals(Integer.toString(i))) {
+                return Optional.empty();
+            }
+
+            final String value = result.substring(valueStart + 1, valueEnd);
+            if (value.indexOf(BATCH_VALUE) != -1) {
+                return Optional.empty();
+            }
+            values.add(value);
+            index = valueEnd;
+        }
+
+        return index == result.length() - 1 ? Optional.of(values) : Optional.empty();
+    }
+
 }
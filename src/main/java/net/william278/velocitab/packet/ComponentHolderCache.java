@@ -0,0 +1,155 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.velocitab.packet;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.proxy.connection.client.ConnectedPlayer;
+import com.velocitypowered.proxy.protocol.packet.HeaderAndFooterPacket;
+import com.velocitypowered.proxy.protocol.packet.chat.ComponentHolder;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TranslatableComponent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.william278.velocitab.util.DebugSystem;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares {@link ComponentHolder}s between viewers on the same protocol version.
+ * <p>
+ * A holder serializes its component to JSON or NBT once and reuses the result, so viewers sharing the holder of a
+ * display name or header only pay for the serialization once. Holders are keyed by the identity of the component,
+ * which the formatter cache keeps stable for identical texts. Components with translatable parts are rendered per
+ * viewer locale and are never shared.
+ */
+public class ComponentHolderCache {
+
+    // Writing ConnectedPlayer's private playerListHeader and playerListFooter fields and sending HeaderAndFooterPacket
+    // directly depends on the internals of Velocity 3.5.0 (build 604 and later). If the fields can't be found, this is
+    // detected once here and every header and footer is sent through Velocity's API instead.
+    private static final VarHandle PLAYER$playerListHeader;
+    private static final VarHandle PLAYER$playerListFooter;
+
+    static {
+        VarHandle header = null;
+        VarHandle footer = null;
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(ConnectedPlayer.class, MethodHandles.lookup());
+            header = lookup.findVarHandle(ConnectedPlayer.class, "playerListHeader", Component.class);
+            footer = lookup.findVarHandle(ConnectedPlayer.class, "playerListFooter", Component.class);
+        } catch (Throwable e) {
+            DebugSystem.log(DebugSystem.DebugLevel.WARNING, "Shared header and footer serialization is unavailable, falling back to Velocity");
+            header = null;
+            footer = null;
+        }
+        PLAYER$playerListHeader = header;
+        PLAYER$playerListFooter = footer;
+    }
+
+    private final Cache<Component, Holders> holders;
+
+    public ComponentHolderCache() {
+        this.holders = CacheBuilder.newBuilder()
+                .weakKeys()
+                .expireAfterAccess(5, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * Get the holder to send a component to a viewer with
+     *
+     * @param viewer    The viewer
+     * @param component The component
+     * @return A holder shared with every viewer on the same protocol version, or a new holder of the translated
+     * component if it has translatable parts
+     */
+    @NotNull
+    public ComponentHolder get(@NotNull ConnectedPlayer viewer, @NotNull Component component) {
+        final Holders entry = getHolders(component);
+        if (entry.translatable()) {
+            return new ComponentHolder(viewer.getProtocolVersion(), viewer.translateMessage(component));
+        }
+        return entry.versions().computeIfAbsent(viewer.getProtocolVersion(), version -> new ComponentHolder(version, component));
+    }
+
+    /**
+     * Send the TAB list header and footer to a player, reusing serialized components
+     *
+     * @param player The player
+     * @param header The header
+     * @param footer The footer
+     */
+    public void sendHeaderAndFooter(@NotNull Player player, @NotNull Component header, @NotNull Component footer) {
+        if (PLAYER$playerListHeader == null || !(player instanceof ConnectedPlayer connectedPlayer)
+            || getHolders(header).translatable() || getHolders(footer).translatable()) {
+            player.sendPlayerListHeaderAndFooter(header, footer);
+            return;
+        }
+
+        PLAYER$playerListHeader.set(connectedPlayer, header);
+        PLAYER$playerListFooter.set(connectedPlayer, footer);
+        if (connectedPlayer.getProtocolVersion().noLessThan(ProtocolVersion.MINECRAFT_1_8)) {
+            connectedPlayer.getConnection().write(new HeaderAndFooterPacket(get(connectedPlayer, header), get(connectedPlayer, footer)));
+        }
+    }
+
+    public void clear() {
+        holders.invalidateAll();
+    }
+
+    @NotNull
+    private Holders getHolders(@NotNull Component component) {
+        try {
+            return holders.get(component, () -> new Holders(isTranslatable(component), Maps.newConcurrentMap()));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to create component holders", e);
+        }
+    }
+
+    private static boolean isTranslatable(@NotNull Component component) {
+        if (component instanceof TranslatableComponent) {
+            return true;
+        }
+
+        final HoverEvent<?> hoverEvent = component.hoverEvent();
+        if (hoverEvent != null && hoverEvent.value() instanceof Component hover && isTranslatable(hover)) {
+            return true;
+        }
+
+        for (Component child : component.children()) {
+            if (isTranslatable(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Holders(boolean translatable, @NotNull Map<ProtocolVersion, ComponentHolder> versions) {
+    }
+
+}
@@ -39,7 +39,9 @@ import net.william278.velocitab.player.TabPlayer;
 import net.william278.velocitab.sorting.SortedSet;
 import net.william278.velocitab.tab.Nametag;
 import net.william278.velocitab.util.DebugSystem;
+import net.william278.velocitab.util.MiniMessageUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.event.Level;
 
 import java.util.*;
@@ -58,6 +60,8 @@ public class ScoreboardManager {
     private final Multimap<UUID, String> trackedTeams;
     @Getter
     private final SortedSet sortedTeams;
+    // The lowest team position that shifted since the last time sorting changes were propagated to each group, by name
+    private final Map<String, Integer> shiftedPositions;
 
     public ScoreboardManager(@NotNull Velocitab velocitab, boolean teams) {
         this.plugin = velocitab;
@@ -67,6 +71,7 @@ public class ScoreboardManager {
         this.versions = Maps.newHashMap();
         this.trackedTeams = Multimaps.synchronizedMultimap(Multimaps.newSetMultimap(Maps.newConcurrentMap(), Sets::newConcurrentHashSet));
         this.sortedTeams = new SortedSet(Comparator.reverseOrder());
+        this.shiftedPositions = Maps.newConcurrentMap();
         this.registerVersions();
     }
 
@@ -100,6 +105,25 @@ public class ScoreboardManager {
         return sortedTeams.getPosition(teamName);
     }
 
+    /**
+     * Get and reset the lowest team position which shifted since this was last called for a group.
+     * Every team at or after this position may have a new position.
+     * <p>
+     * Team positions are shared by all groups, so a shift is recorded for every group and each group consumes its own.
+     *
+     * @param group The group
+     * @return The lowest shifted position, or {@link Integer#MAX_VALUE} if no position shifted
+     */
+    public int consumeShiftedPosition(@NotNull Group group) {
+        final Integer position = shiftedPositions.remove(group.name());
+        return position == null ? Integer.MAX_VALUE : position;
+    }
+
+    private void markShifted(int position) {
+        plugin.getTabGroupsManager().getGroups()
+                .forEach(group -> shiftedPositions.merge(group.name(), position, Math::min));
+    }
+
     @NotNull
     public TeamsPacketAdapter getPacketAdapter(@NotNull ProtocolVersion version) {
         return Optional.ofNullable(versions.get(version))
@@ -111,9 +135,8 @@ public class ScoreboardManager {
     }
 
     public void resetCache(@NotNull Player player) {
-        final String team = createdTeams.remove(player.getUniqueId());
+        final String team = removeCreatedTeam(player);
         if (team != null) {
-            removeSortedTeam(team);
             plugin.getTabList().getTabPlayer(player).ifPresent(tabPlayer ->
                     dispatchGroupPacket(UpdateTeamsPacket.removeTeam(plugin, team), tabPlayer)
             );
@@ -122,18 +145,63 @@ public class ScoreboardManager {
     }
 
     public void resetCache(@NotNull Player player, @NotNull Group group) {
+        final String team = removeCreatedTeam(player);
+        if (team != null) {
+            dispatchGroupPacket(UpdateTeamsPacket.removeTeam(plugin, team), group);
+        }
+    }
+
+    @Nullable
+    private synchronized String removeCreatedTeam(@NotNull Player player) {
         final String team = createdTeams.remove(player.getUniqueId());
         if (team != null) {
             removeSortedTeam(team);
-            dispatchGroupPacket(UpdateTeamsPacket.removeTeam(plugin, team), group);
         }
+        return team;
+    }
+
+    private boolean changeTeam(@NotNull TabPlayer tabPlayer, @NotNull String role, @NotNull Nametag nametag) {
+        final Player player = tabPlayer.getPlayer();
+        final String oldRole;
+        final int position;
+        // Groups are updated by different task manager threads, the team maps are changed under the lock to keep the
+        // sorted teams and the created teams of each player consistent. Packets are sent after releasing it
+        synchronized (this) {
+            oldRole = createdTeams.get(player.getUniqueId());
+            if (role.equals(oldRole)) {
+                return true;
+            }
+
+            if (oldRole != null) {
+                createdTeams.remove(player.getUniqueId());
+                removeSortedTeam(oldRole);
+            }
+            createdTeams.put(player.getUniqueId(), role);
+            position = sortedTeams.addTeam(role);
+            if (position != -1) {
+                markShifted(position);
+                this.nametags.put(role, nametag);
+            }
+        }
+
+        if (oldRole != null) {
+            dispatchGroupPacket(UpdateTeamsPacket.removeTeam(plugin, oldRole), tabPlayer);
+        }
+        if (position == -1) {
+            DebugSystem.log(DebugSystem.DebugLevel.ERROR, "Failed to add team " + role + " to sortedTeams");
+            return false;
+        }
+        dispatchGroupCreatePacket(plugin, tabPlayer, role, nametag, player.getUsername());
+        return true;
     }
 
     private void removeSortedTeam(@NotNull String teamName) {
-        final boolean result = sortedTeams.removeTeam(teamName);
-        if (!result) {
+        final int position = sortedTeams.removeTeam(teamName);
+        if (position == -1) {
             DebugSystem.log(DebugSystem.DebugLevel.ERROR, "Failed to remove team " + teamName + " from sortedTeams");
+            return;
         }
+        markShifted(position);
     }
 
     public void vanishPlayer(@NotNull TabPlayer tabPlayer) {
@@ -158,15 +226,20 @@ public class ScoreboardManager {
         final boolean isNameTagEmpty = tabPlayer.getGroup().nametag().isEmpty() && !plugin.getSettings().isRemoveNametags();
 
         final Optional<Nametag> cachedTag = Optional.ofNullable(nametags.getOrDefault(teamName, null));
-        cachedTag.ifPresent(nametag -> siblings.forEach(server -> server.getPlayersConnected().stream().filter(p -> p != player)
-                .forEach(connected -> {
-                    if (vanish && !plugin.getVanishManager().canSee(connected.getUsername(), player.getUsername())) {
-                        sendPacket(connected, UpdateTeamsPacket.removeTeam(plugin, teamName), isNameTagEmpty);
-                        trackedTeams.remove(connected.getUniqueId(), teamName);
-                    } else {
-                        dispatchGroupCreatePacket(plugin, tabPlayer, teamName, nametag, player.getUsername());
-                    }
-                })));
+        final SharedTeamsPacket removeTeam = new SharedTeamsPacket(UpdateTeamsPacket.removeTeam(plugin, teamName), this);
+        try {
+            cachedTag.ifPresent(nametag -> siblings.forEach(server -> server.getPlayersConnected().stream().filter(p -> p != player)
+                    .forEach(connected -> {
+                        if (vanish && !plugin.getVanishManager().canSee(connected.getUsername(), player.getUsername())) {
+                            sendPacket(connected, removeTeam, isNameTagEmpty);
+                            trackedTeams.remove(connected.getUniqueId(), teamName);
+                        } else {
+                            dispatchGroupCreatePacket(plugin, tabPlayer, teamName, nametag, player.getUsername());
+                        }
+                    })));
+        } finally {
+            removeTeam.release();
+        }
     }
 
     /**
@@ -184,27 +257,9 @@ public class ScoreboardManager {
             return false;
         }
 
-        final String name = player.getUsername();
         final Nametag nametag = tabPlayer.getNametag(plugin);
         if (!createdTeams.getOrDefault(player.getUniqueId(), "").equals(role)) {
-            if (createdTeams.containsKey(player.getUniqueId())) {
-                dispatchGroupPacket(
-                        UpdateTeamsPacket.removeTeam(plugin, createdTeams.get(player.getUniqueId())),
-                        tabPlayer
-                );
-            }
-            final String oldRole = createdTeams.remove(player.getUniqueId());
-            if (oldRole != null) {
-                removeSortedTeam(oldRole);
-            }
-            createdTeams.put(player.getUniqueId(), role);
-            final boolean a = sortedTeams.addTeam(role);
-            if (!a) {
-                DebugSystem.log(DebugSystem.DebugLevel.ERROR, "Failed to add team " + role + " to sortedTeams");
-                return false;
-            }
-            this.nametags.put(role, nametag);
-            dispatchGroupCreatePacket(plugin, tabPlayer, role, nametag, name);
+            return changeTeam(tabPlayer, role, nametag);
         } else if (force || (this.nametags.containsKey(role) && !this.nametags.get(role).equals(nametag))) {
             this.nametags.put(role, nametag);
             dispatchGroupChangePacket(plugin, tabPlayer, role, nametag, force);
@@ -280,14 +335,52 @@ public class ScoreboardManager {
         if (!teams) {
             return;
         }
-        tabPlayer.getGroup().getTabPlayers(plugin, tabPlayer).forEach(viewer -> {
-            if (!viewer.getPlayer().isActive()) {
-                return;
-            }
+        final boolean isNameTagEmpty = tabPlayer.getGroup().nametag().isEmpty() && !plugin.getSettings().isRemoveNametags();
+        final boolean relational = isRelationalNametag(tabPlayer, nametag);
 
+        // Viewers seeing the same nametag share one packet, encoded once per protocol version
+        final Map<NametagClass, UpdateTeamsPacket> packets = Maps.newHashMap();
+        final Map<NametagClass, SharedTeamsPacket> sharedPackets = Maps.newHashMap();
+        try {
+            tabPlayer.getGroup().getTabPlayers(plugin, tabPlayer).forEach(viewer -> {
+                if (!viewer.getPlayer().isActive()) {
+                    return;
+                }
 
-            dispatchCreatePacket(plugin, tabPlayer, teamName, nametag, viewer, teamMembers);
-        });
+                final boolean canSee = plugin.getVanishManager().canSee(viewer.getPlayer().getUsername(), tabPlayer.getPlayer().getUsername());
+                if (!canSee) {
+                    return;
+                }
+
+                final NametagClass nametagClass = relational ? getNametagClass(tabPlayer, viewer, nametag) : NametagClass.SHARED;
+                final UpdateTeamsPacket packet = packets.computeIfAbsent(nametagClass,
+                        c -> UpdateTeamsPacket.create(plugin, tabPlayer, teamName, nametag, viewer, teamMembers));
+
+                // Allow API consumers to transform nametag components before the packet is sent.
+                final TabTeamUpdateEvent event = plugin.getEventDispatcher().fireTeamUpdateEvent(
+                        tabPlayer, viewer.getPlayer(),
+                        packet.prefix(), packet.suffix(), packet.displayName(),
+                        TabTeamUpdateEvent.Mode.CREATE
+                );
+
+                trackedTeams.put(viewer.getPlayer().getUniqueId(), teamName);
+                if (Objects.equals(event.getPrefix(), packet.prefix()) && Objects.equals(event.getSuffix(), packet.suffix())
+                    && Objects.equals(event.getDisplayName(), packet.displayName())) {
+                    sendPacket(viewer.getPlayer(), sharedPackets.computeIfAbsent(nametagClass,
+                            c -> new SharedTeamsPacket(packet, this)), isNameTagEmpty);
+                    return;
+                }
+
+                // The event changed the nametag for this viewer only, so it can't use the shared packet
+                final UpdateTeamsPacket viewerPacket = UpdateTeamsPacket.create(plugin, tabPlayer, teamName, nametag, viewer, teamMembers)
+                        .prefix(event.getPrefix())
+                        .suffix(event.getSuffix())
+                        .displayName(event.getDisplayName());
+                sendPacket(viewer.getPlayer(), viewerPacket, isNameTagEmpty);
+            });
+        } finally {
+            sharedPackets.values().forEach(SharedTeamsPacket::release);
+        }
     }
 
     private void dispatchCreatePacket(@NotNull Velocitab plugin, @NotNull TabPlayer tabPlayer,
@@ -326,47 +419,95 @@ public class ScoreboardManager {
             return;
         }
         final boolean isNameTagEmpty = tabPlayer.getGroup().nametag().isEmpty() && !plugin.getSettings().isRemoveNametags();
-        tabPlayer.getGroup().getTabPlayers(plugin, tabPlayer).forEach(viewer -> {
-            if (!viewer.getPlayer().isActive()) {
-                return;
-            }
+        final boolean relational = isRelationalNametag(tabPlayer, nametag);
 
-            final boolean canSee = plugin.getVanishManager().canSee(viewer.getPlayer().getUsername(), tabPlayer.getPlayer().getUsername());
-            if (!canSee) {
-                return;
-            }
+        // Viewers seeing the same nametag share one rendered packet. Its frames are keyed by protocol version,
+        // so viewers on different versions served by the same adapter never receive each other's encoding
+        final Map<NametagClass, UpdateTeamsPacket> packets = Maps.newHashMap();
+        final Map<NametagClass, SharedTeamsPacket> sharedPackets = Maps.newHashMap();
+        try {
+            tabPlayer.getGroup().getTabPlayers(plugin, tabPlayer).forEach(viewer -> {
+                if (!viewer.getPlayer().isActive()) {
+                    return;
+                }
 
-            // Prevent sending change nametag packets to players who are not tracking the team
-            if (!trackedTeams.containsEntry(viewer.getPlayer().getUniqueId(), teamName)) {
-                return;
-            }
+                final boolean canSee = plugin.getVanishManager().canSee(viewer.getPlayer().getUsername(), tabPlayer.getPlayer().getUsername());
+                if (!canSee) {
+                    return;
+                }
 
-            final UpdateTeamsPacket packet = UpdateTeamsPacket.changeNametag(plugin, tabPlayer, teamName, viewer, nametag);
-            final Component prefix = packet.prefix();
-            final Component suffix = packet.suffix();
-            final Optional<Component[]> cached = tabPlayer.getRelationalNametag(viewer.getPlayer().getUniqueId());
-            // Skip if the nametag is the same as the cached one
-            if (!force && cached.isPresent() && cached.get()[0].equals(prefix) && cached.get()[1].equals(suffix)) {
-                return;
-            }
+                // Prevent sending change nametag packets to players who are not tracking the team
+                if (!trackedTeams.containsEntry(viewer.getPlayer().getUniqueId(), teamName)) {
+                    return;
+                }
 
-            // Allow API consumers to transform nametag components before the packet is sent.
-            final TabTeamUpdateEvent event = plugin.getEventDispatcher().fireTeamUpdateEvent(
-                    tabPlayer, viewer.getPlayer(),
-                    prefix, suffix, packet.displayName(),
-                    TabTeamUpdateEvent.Mode.UPDATE
-            );
-            packet.prefix(event.getPrefix());
-            packet.suffix(event.getSuffix());
-            packet.displayName(event.getDisplayName());
-
-            // Cache the pre-event (Velocitab-computed) values for deduplication.
-            // The event transformation is deterministic: same input → same output, so if
-            // Velocitab's computed values haven't changed the client already has the correct
-            // post-event result and we can safely skip the next cycle.
-            tabPlayer.setRelationalNametag(viewer.getPlayer().getUniqueId(), prefix, suffix);
-            sendPacket(viewer.getPlayer(), packet, isNameTagEmpty);
-        });
+                final NametagClass nametagClass = relational ? getNametagClass(tabPlayer, viewer, nametag) : NametagClass.SHARED;
+                final UpdateTeamsPacket packet = packets.computeIfAbsent(nametagClass,
+                        c -> UpdateTeamsPacket.changeNametag(plugin, tabPlayer, teamName, viewer, nametag));
+                final Component prefix = packet.prefix();
+                final Component suffix = packet.suffix();
+                final Optional<Component[]> cached = tabPlayer.getRelationalNametag(viewer.getPlayer().getUniqueId());
+                // Skip if the nametag is the same as the cached one
+                if (!force && cached.isPresent() && cached.get()[0].equals(prefix) && cached.get()[1].equals(suffix)) {
+                    return;
+                }
+
+                // Allow API consumers to transform nametag components before the packet is sent.
+                final TabTeamUpdateEvent event = plugin.getEventDispatcher().fireTeamUpdateEvent(
+                        tabPlayer, viewer.getPlayer(),
+                        prefix, suffix, packet.displayName(),
+                        TabTeamUpdateEvent.Mode.UPDATE
+                );
+
+                // Cache the pre-event (Velocitab-computed) values for deduplication.
+                // The event transformation is deterministic: same input → same output, so if
+                // Velocitab's computed values haven't changed the client already has the correct
+                // post-event result and we can safely skip the next cycle.
+                tabPlayer.setRelationalNametag(viewer.getPlayer().getUniqueId(), prefix, suffix);
+
+                if (Objects.equals(event.getPrefix(), prefix) && Objects.equals(event.getSuffix(), suffix)
+                    && Objects.equals(event.getDisplayName(), packet.displayName())) {
+                    sendPacket(viewer.getPlayer(), sharedPackets.computeIfAbsent(nametagClass,
+                            c -> new SharedTeamsPacket(packet, this)), isNameTagEmpty);
+                    return;
+                }
+
+                // The event changed the nametag for this viewer only, so it can't use the shared packet
+                final UpdateTeamsPacket viewerPacket = UpdateTeamsPacket.changeNametag(plugin, tabPlayer, teamName, viewer, nametag)
+                        .prefix(event.getPrefix())
+                        .suffix(event.getSuffix())
+                        .displayName(event.getDisplayName());
+                sendPacket(viewer.getPlayer(), viewerPacket, isNameTagEmpty);
+            });
+        } finally {
+            sharedPackets.values().forEach(SharedTeamsPacket::release);
+        }
+    }
+
+    private boolean isRelationalNametag(@NotNull TabPlayer tabPlayer, @NotNull Nametag nametag) {
+        if (plugin.getPlaceholderManager().isRelationalNametag(tabPlayer.getGroup())) {
+            return true;
+        }
+
+        // MiniPlaceholders relational placeholders are resolved by the formatter for each viewer
+        return plugin.getMiniPlaceholdersHook().isPresent()
+               && (MiniMessageUtil.getINSTANCE().hasCustomTags(nametag.prefix())
+                   || MiniMessageUtil.getINSTANCE().hasCustomTags(nametag.suffix()));
+    }
+
+    @NotNull
+    private NametagClass getNametagClass(@NotNull TabPlayer tabPlayer, @NotNull TabPlayer viewer, @NotNull Nametag nametag) {
+        final String prefix = plugin.getPlaceholderManager().applyPlaceholders(tabPlayer, nametag.prefix(), viewer);
+        final String suffix = plugin.getPlaceholderManager().applyPlaceholders(tabPlayer, nametag.suffix(), viewer);
+        final UUID uuid = plugin.getMiniPlaceholdersHook().isPresent()
+                          && (MiniMessageUtil.getINSTANCE().hasCustomTags(prefix) || MiniMessageUtil.getINSTANCE().hasCustomTags(suffix))
+                ? viewer.getPlayer().getUniqueId() : null;
+        return new NametagClass(prefix, suffix, uuid);
+    }
+
+    // The inputs a nametag is rendered from for a viewer, besides the player it belongs to
+    private record NametagClass(@Nullable String prefix, @Nullable String suffix, @Nullable UUID uuid) {
+        private static final NametagClass SHARED = new NametagClass(null, null, null);
     }
 
     private void dispatchGroupPacket(@NotNull UpdateTeamsPacket packet, @NotNull Group group) {
@@ -376,16 +517,21 @@ public class ScoreboardManager {
 
         final boolean isRemove = packet.isRemoveTeam();
         final boolean isNameTagEmpty = group.nametag().isEmpty();
-        group.registeredServers(plugin).forEach(server -> server.getPlayersConnected().forEach(connected -> {
-            try {
-                sendPacket(connected, packet, isNameTagEmpty);
-                if (isRemove) {
-                    trackedTeams.remove(connected.getUniqueId(), packet.teamName());
+        final SharedTeamsPacket shared = new SharedTeamsPacket(packet, this);
+        try {
+            group.getPlayers(plugin).forEach(connected -> {
+                try {
+                    sendPacket(connected, shared, isNameTagEmpty);
+                    if (isRemove) {
+                        trackedTeams.remove(connected.getUniqueId(), packet.teamName());
+                    }
+                } catch (Throwable e) {
+                    plugin.log(Level.ERROR, "Failed to dispatch packet (unsupported client or server version)", e);
                 }
-            } catch (Throwable e) {
-                plugin.log(Level.ERROR, "Failed to dispatch packet (unsupported client or server version)", e);
-            }
-        }));
+            });
+        } finally {
+            shared.release();
+        }
     }
 
     private void dispatchGroupPacket(@NotNull UpdateTeamsPacket packet, @NotNull TabPlayer tabPlayer) {
@@ -400,26 +546,27 @@ public class ScoreboardManager {
 
         final List<Player> players = tabPlayer.getGroup().getPlayers(plugin);
         final boolean isNameTagEmpty = tabPlayer.getGroup().nametag().isEmpty() && !plugin.getSettings().isRemoveNametags();
-        players.forEach(connected -> {
-            try {
-                final boolean canSee = plugin.getVanishManager().canSee(connected.getUsername(), player.getUsername());
-                if (!canSee) {
-                    return;
-                }
+        final SharedTeamsPacket shared = new SharedTeamsPacket(packet, this);
+        try {
+            players.forEach(connected -> {
+                try {
+                    final boolean canSee = plugin.getVanishManager().canSee(connected.getUsername(), player.getUsername());
+                    if (!canSee) {
+                        return;
+                    }
 
-                sendPacket(connected, packet, isNameTagEmpty);
-            } catch (Throwable e) {
-                plugin.log(Level.ERROR, "Failed to dispatch packet (unsupported client or server version)", e);
-            }
-        });
+                    sendPacket(connected, shared, isNameTagEmpty);
+                } catch (Throwable e) {
+                    plugin.log(Level.ERROR, "Failed to dispatch packet (unsupported client or server version)", e);
+                }
+            });
+        } finally {
+            shared.release();
+        }
     }
 
     private void sendPacket(@NotNull Player player, @NotNull UpdateTeamsPacket packet, boolean isNameTagEmpty) {
-        if (!player.isActive()) {
-            plugin.getTabList().removeOfflinePlayer(player);
-            return;
-        }
-        if (player.getProtocolVersion().noLessThan(ProtocolVersion.MINECRAFT_1_21_2) && isNameTagEmpty) {
+        if (!canReceivePacket(player, isNameTagEmpty)) {
             return;
         }
 
@@ -427,6 +574,22 @@ public class ScoreboardManager {
         connectedPlayer.getConnection().write(packet);
     }
 
+    private void sendPacket(@NotNull Player player, @NotNull SharedTeamsPacket packet, boolean isNameTagEmpty) {
+        if (!canReceivePacket(player, isNameTagEmpty)) {
+            return;
+        }
+
+        packet.write((ConnectedPlayer) player);
+    }
+
+    private boolean canReceivePacket(@NotNull Player player, boolean isNameTagEmpty) {
+        if (!player.isActive()) {
+            plugin.getTabList().removeOfflinePlayer(player);
+            return false;
+        }
+        return !player.getProtocolVersion().noLessThan(ProtocolVersion.MINECRAFT_1_21_2) || !isNameTagEmpty;
+    }
+
     public void registerPacket() {
         if (!teams) {
             return;
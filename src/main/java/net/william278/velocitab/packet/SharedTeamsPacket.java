@@ -0,0 +1,92 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.velocitab.packet;
+
+import com.google.common.collect.Maps;
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.proxy.connection.MinecraftConnection;
+import com.velocitypowered.proxy.connection.client.ConnectedPlayer;
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import io.netty.buffer.ByteBuf;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * An {@link UpdateTeamsPacket} with the same content for every viewer, which is encoded once per protocol version
+ * instead of once per connection.
+ * <p>
+ * Each viewer is sent a retained duplicate of the encoded frame for its protocol version. Adapters encode the packet
+ * differently depending on the version they serve it for, so frames are never shared between versions. Frames are
+ * only built for connections in the play state; other connections are sent the packet itself. Call
+ * {@link #release()} once the packet has been sent to every viewer.
+ */
+public class SharedTeamsPacket {
+
+    @Getter
+    private final UpdateTeamsPacket packet;
+    private final ScoreboardManager scoreboardManager;
+    private final Map<ProtocolVersion, ByteBuf> frames;
+
+    public SharedTeamsPacket(@NotNull UpdateTeamsPacket packet, @NotNull ScoreboardManager scoreboardManager) {
+        this.packet = packet;
+        this.scoreboardManager = scoreboardManager;
+        this.frames = Maps.newEnumMap(ProtocolVersion.class);
+    }
+
+    public void write(@NotNull ConnectedPlayer player) {
+        final MinecraftConnection connection = player.getConnection();
+        if (connection.getState() != StateRegistry.PLAY) {
+            connection.write(packet);
+            return;
+        }
+
+        connection.write(getFrame(connection, player.getProtocolVersion()).retainedDuplicate());
+    }
+
+    @NotNull
+    private ByteBuf getFrame(@NotNull MinecraftConnection connection, @NotNull ProtocolVersion version) {
+        return frames.computeIfAbsent(version, v -> {
+            final TeamsPacketAdapter adapter = scoreboardManager.getPacketAdapter(v);
+            final int packetId = StateRegistry.PLAY.getProtocolRegistry(ProtocolUtils.Direction.CLIENTBOUND, v)
+                    .getPacketId(packet);
+            final ByteBuf buf = connection.getChannel().alloc().buffer();
+            try {
+                ProtocolUtils.writeVarInt(buf, packetId);
+                adapter.encode(buf, packet, v);
+            } catch (Throwable e) {
+                buf.release();
+                throw e;
+            }
+            return buf;
+        });
+    }
+
+    /**
+     * Release the encoded buffers. Duplicates already handed to connections stay valid until they are written.
+     */
+    public void release() {
+        frames.values().forEach(ByteBuf::release);
+        frames.clear();
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.velocitab.placeholder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.Getter;
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.mvel2.MVEL;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A condition of a {@code velocitab_condition} placeholder, compiled once.
+ * <p>
+ * Placeholders in the condition are replaced by MVEL variables, which are bound to the placeholder values on each
+ * evaluation. A placeholder on its own, e.g. {@code %ping% > 100}, is bound as a number or boolean if its value is one,
+ * a quoted placeholder, e.g. {@code "%server%" == "lobby"}, is bound as a string. Conditions with placeholders inside
+ * a longer string literal can't be bound, so the values are substituted into the text, which is compiled once per
+ * distinct text.
+ * <p>
+ * Conditions made only of comparisons, {@code &&}, {@code ||} and {@code !} are evaluated natively by a
+ * {@link ConditionParser} tree, MVEL is only used for other conditions or values the tree can't compare.
+ */
+public final class Condition {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("%[^%\\s\"']+%");
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?");
+    private static final String VARIABLE_PREFIX = "velocitab_";
+    private static final Pattern OPERATOR = Pattern.compile(
+            "\\b(GREATER_THAN_OR_EQUAL|LESS_THAN_OR_EQUAL|GREATER_THAN|LESS_THAN|and|or|AND|OR)\\b");
+    private static final Map<String, String> OPERATORS = Map.of(
+            "GREATER_THAN_OR_EQUAL", ">=", "LESS_THAN_OR_EQUAL", "<=",
+            "GREATER_THAN", ">", "LESS_THAN", "<",
+            "and", "&&", "or", "||", "AND", "&&", "OR", "||"
+    );
+    private static final int MAX_SUBSTITUTED = 64;
+
+    @Getter
+    private final String condition;
+    // The placeholder bound to each variable, in order of the variable index
+    private final List<Binding> variables;
+    // The expression passed to MVEL, null if the condition can't be bound
+    @Nullable
+    private final String expression;
+    @Nullable
+    private final ConditionParser.Node tree;
+    @Nullable
+    private volatile Serializable compiled;
+    // Compiled texts of a condition which can't be bound, keyed by the text with the values substituted
+    @Nullable
+    private final Map<String, Serializable> substituted;
+
+    private Condition(@NotNull String condition, @NotNull List<Binding> variables, @Nullable String expression) {
+        this.condition = condition;
+        this.variables = variables;
+        this.expression = expression;
+        this.tree = expression == null ? null : ConditionParser.parse(expression, VARIABLE_PREFIX).orElse(null);
+        if (expression != null && tree == null) {
+            this.compiled = MVEL.compileExpression(expression);
+        }
+        this.substituted = expression != null ? null : ExpiringMap.builder()
+                .expiration(5, TimeUnit.MINUTES)
+                .expirationPolicy(ExpirationPolicy.ACCESSED)
+                .maxSize(MAX_SUBSTITUTED)
+                .build();
+    }
+
+    /**
+     * Compile a condition
+     *
+     * @param condition The condition, with its placeholders
+     * @return The compiled condition
+     */
+    @NotNull
+    public static Condition compile(@NotNull String condition) {
+        final List<Binding> variables = Lists.newArrayList();
+        final StringBuilder expression = new StringBuilder(condition.length());
+
+        int index = 0;
+        while (index < condition.length()) {
+            final char c = condition.charAt(index);
+            if (c != '"' && c != '\'') {
+                final int next = nextQuote(condition, index);
+                expression.append(bindCode(condition.substring(index, next), variables));
+                index = next;
+                continue;
+            }
+
+            final int end = condition.indexOf(c, index + 1);
+            if (end == -1) {
+                // Unterminated literal, leave it to MVEL to report
+                expression.append(condition.substring(index));
+                break;
+            }
+
+            final String content = condition.substring(index + 1, end);
+            final Matcher matcher = PLACEHOLDER.matcher(content);
+            if (matcher.matches()) {
+                expression.append(variable(variables, content, false));
+            } else if (matcher.reset().find()) {
+                return new Condition(condition, List.of(), null);
+            } else {
+                expression.append(condition, index, end + 1);
+            }
+            index = end + 1;
+        }
+
+        return new Condition(condition, List.copyOf(variables), expression.toString());
+    }
+
+    /**
+     * Evaluate the condition
+     *
+     * @param resolver Resolves the value of a placeholder
+     * @return The result of the condition
+     */
+    @Nullable
+    public Object evaluate(@NotNull Function<String, String> resolver) {
+        if (expression == null) {
+            final String text = PLACEHOLDER.matcher(condition)
+                    .replaceAll(match -> Matcher.quoteReplacement(resolver.apply(match.group())));
+            final Serializable compiled = substituted.computeIfAbsent(text,
+                    t -> MVEL.compileExpression(replaceCodeOperators(t)));
+            return MVEL.executeExpression(compiled);
+        }
+
+        final Object[] values = new Object[variables.size()];
+        for (int i = 0; i < values.length; i++) {
+            final Binding binding = variables.get(i);
+            final String value = resolver.apply(binding.placeholder());
+            values[i] = binding.typed() ? toTyped(value) : value;
+        }
+
+        if (tree != null) {
+            try {
+                return tree.test(values);
+            } catch (ConditionParser.UnsupportedEvaluation e) {
+                // Fall back to MVEL, e.g. to coerce a non-numeric value compared with a number
+            }
+        }
+        return evaluateMvel(values);
+    }
+
+    @Nullable
+    private Object evaluateMvel(@NotNull Object[] values) {
+        Serializable compiled = this.compiled;
+        if (compiled == null) {
+            compiled = MVEL.compileExpression(expression);
+            this.compiled = compiled;
+        }
+
+        final Map<String, Object> variables = Maps.newHashMapWithExpectedSize(values.length);
+        for (int i = 0; i < values.length; i++) {
+            variables.put(VARIABLE_PREFIX + i, values[i]);
+        }
+        return MVEL.executeExpression(compiled, variables);
+    }
+
+    // Replace the placeholders of a code segment with variables
+    @NotNull
+    private static String bindCode(@NotNull String code, @NotNull List<Binding> variables) {
+        final Matcher matcher = PLACEHOLDER.matcher(code);
+        final StringBuilder builder = new StringBuilder(code.length());
+        while (matcher.find()) {
+            matcher.appendReplacement(builder, variable(variables, matcher.group(), true));
+        }
+        matcher.appendTail(builder);
+        return replaceOperators(builder.toString());
+    }
+
+    @NotNull
+    private static String variable(@NotNull List<Binding> variables, @NotNull String placeholder, boolean typed) {
+        variables.add(new Binding(placeholder, typed));
+        return VARIABLE_PREFIX + (variables.size() - 1);
+    }
+
+    private static int nextQuote(@NotNull String text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '"' || c == '\'') {
+                return i;
+            }
+        }
+        return text.length();
+    }
+
+    // Replace the word operators of a code segment, e.g. "and" but not the "and" of "%brand%"
+    @NotNull
+    private static String replaceOperators(@NotNull String code) {
+        return OPERATOR.matcher(code).replaceAll(match -> OPERATORS.get(match.group()));
+    }
+
+    // Replace the word operators of a condition outside its string literals
+    @NotNull
+    private static String replaceCodeOperators(@NotNull String condition) {
+        final StringBuilder builder = new StringBuilder(condition.length());
+        int index = 0;
+        while (index < condition.length()) {
+            final int quote = nextQuote(condition, index);
+            builder.append(replaceOperators(condition.substring(index, quote)));
+            if (quote == condition.length()) {
+                break;
+            }
+
+            final int end = condition.indexOf(condition.charAt(quote), quote + 1);
+            final int literalEnd = end == -1 ? condition.length() : end + 1;
+            builder.append(condition, quote, literalEnd);
+            index = literalEnd;
+        }
+        return builder.toString();
+    }
+
+    @NotNull
+    private static Object toTyped(@NotNull String value) {
+        final String trimmed = value.trim();
+        if (trimmed.equalsIgnoreCase("true") || trimmed.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(trimmed);
+        }
+        final Number number = toNumber(trimmed);
+        return number != null ? number : value;
+    }
+
+    /**
+     * Parse a number as a {@link Long}, or a {@link Double} if it has decimals
+     *
+     * @param text The text to parse
+     * @return The number, or {@code null} if the text is not a number
+     */
+    @Nullable
+    static Number toNumber(@NotNull String text) {
+        if (!NUMBER.matcher(text).matches()) {
+            return null;
+        }
+        try {
+            return text.indexOf('.') == -1 ? (Number) Long.parseLong(text) : (Number) Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Unquoted placeholders are bound as numbers or booleans where possible, quoted ones always as strings
+    private record Binding(@NotNull String placeholder, boolean typed) {}
+
+}
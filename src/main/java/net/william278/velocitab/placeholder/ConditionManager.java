@@ -19,12 +19,13 @@
 
 package net.william278.velocitab.placeholder;
 
+import com.google.common.collect.Lists;
+import net.jodah.expiringmap.ExpirationPolicy;
 import net.jodah.expiringmap.ExpiringMap;
 import net.william278.velocitab.Velocitab;
 import net.william278.velocitab.player.TabPlayer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.mvel2.MVEL;
 
 import java.util.Arrays;
 import java.util.List;
@@ -43,10 +44,14 @@ public class ConditionManager {
     private static final String VELOCITAB_REL_WHO_IS_SEEING = "velocitab_rel_who-is-seeing";
     private static final String VELOCITAB_REL_VANISH = "velocitab_rel_vanish";
 
+    private static final String TARGET_PREFIX = "%target_";
+    private static final int MAX_CACHED_CONDITIONS = 1024;
+
     private final Velocitab plugin;
-    private final Pattern targetPlaceholderPattern;
     private final Pattern miniEscapeEndTags;
-    private final Map<String, Object> cachedExpressions;
+    // Compiled conditions, keyed by their text with the player's placeholders left in it. Only %target_
+    // placeholders of relational conditions are applied beforehand, so the size is bounded for varying viewer values
+    private final Map<String, Condition> cachedConditions;
 
     private static final Map<String, String> REPLACE_CHARS = Map.of(
             "?dp?", ":"
@@ -54,10 +59,11 @@ public class ConditionManager {
 
     public ConditionManager(@NotNull Velocitab plugin) {
         this.plugin = plugin;
-        this.targetPlaceholderPattern = Pattern.compile("%target_(\\w+)?%");
         this.miniEscapeEndTags = Pattern.compile("</(\\w+)>");
-        this.cachedExpressions = ExpiringMap.builder()
+        this.cachedConditions = ExpiringMap.builder()
                 .expiration(5, TimeUnit.MINUTES)
+                .expirationPolicy(ExpirationPolicy.ACCESSED)
+                .maxSize(MAX_CACHED_CONDITIONS)
                 .build();
     }
 
@@ -69,7 +75,7 @@ public class ConditionManager {
             return "";
         }
 
-        String condition = parameters.get(0);
+        final String condition = parameters.get(0);
         if (parameters.size() < 2) {
             plugin.getLogger().warn("Invalid condition: Missing true/false values for condition: {}. Parameters: {}", condition, parameters);
             return "";
@@ -79,10 +85,8 @@ public class ConditionManager {
             parameters.add("");
         }
 
-        condition = plugin.getPlaceholderManager().applyPlaceholders(target, condition);
         final String falseValue = processFalseValue(parameters.get(2));
-        final String expression = buildExpression(condition);
-        return evaluateAndFormatCondition(expression, target, parameters.get(1), falseValue);
+        return evaluateAndFormatCondition(condition, target, parameters.get(1), falseValue);
     }
 
     @NotNull
@@ -109,47 +113,30 @@ public class ConditionManager {
     }
 
     @NotNull
-    private String buildExpression(@NotNull String condition) {
-        return condition
-                .replace("GREATER_THAN_OR_EQUAL", ">=").replace("LESS_THAN_OR_EQUAL", "<=")
-                .replace("GREATER_THAN", ">").replace("LESS_THAN", "<")
-                .replace("and", "&&").replace("or", "||")
-                .replace("AND", "&&").replace("OR", "||");
-    }
-
-    @NotNull
-    private String evaluateAndFormatCondition(@NotNull String expression, @NotNull TabPlayer target,
+    private String evaluateAndFormatCondition(@NotNull String condition, @NotNull TabPlayer target,
                                               @NotNull String trueValue, @NotNull String falseValue) {
-        final String targetString = parseTargetPlaceholders(expression, target).trim();
         try {
-            final Object result = evaluateExpression(targetString);
+            final Condition compiled = cachedConditions.computeIfAbsent(condition.trim(), Condition::compile);
+            final Object result = compiled.evaluate(placeholder -> resolvePlaceholder(placeholder, target));
             if (result instanceof Boolean) {
                 final boolean boolResult = (Boolean) result;
                 return boolResult ? trueValue : falseValue;
             }
         } catch (Exception e) {
-            plugin.getLogger().warn("Failed to evaluate condition: {} error: {}", expression, e.getMessage());
+            plugin.getLogger().warn("Failed to evaluate condition: {} error: {}", condition, e.getMessage());
         }
         return "";
     }
 
     @NotNull
-    private Object evaluateExpression(@NotNull String expression) {
-        return cachedExpressions.computeIfAbsent(expression, MVEL::eval);
-    }
-
-    @NotNull
-    private String parseTargetPlaceholders(@NotNull String input, @NotNull TabPlayer target) {
-        return targetPlaceholderPattern.matcher(input).replaceAll(match -> {
-            final String placeholder = match.group(1);
-            if (placeholder == null) {
-                return "";
-            }
+    private String resolvePlaceholder(@NotNull String placeholder, @NotNull TabPlayer target) {
+        if (!placeholder.startsWith(TARGET_PREFIX)) {
+            return plugin.getPlaceholderManager().applyPlaceholders(target, placeholder);
+        }
 
-            final String text = "%" + placeholder + "%";
-            final Optional<String> placeholderValue = plugin.getPlaceholderManager().getCachedPlaceholderValue(text, target.getPlayer().getUniqueId());
-            return placeholderValue.orElse(text);
-        });
+        final String text = "%" + placeholder.substring(TARGET_PREFIX.length());
+        final Optional<String> placeholderValue = plugin.getPlaceholderManager().getCachedPlaceholderValue(text, target.getPlayer().getUniqueId());
+        return placeholderValue.orElse(text);
     }
 
     public String handleVelocitabPlaceholders(@NotNull String text, @NotNull TabPlayer player, @Nullable TabPlayer viewer) {
@@ -163,7 +150,9 @@ public class ConditionManager {
     @NotNull
     private String handleRelPlaceholders(@NotNull String text, @NotNull TabPlayer player, @NotNull TabPlayer viewer) {
         switch (text) {
-            case VELOCITAB_REL_WHO_IS_SEEING -> viewer.getPlayer().getUsername();
+            case VELOCITAB_REL_WHO_IS_SEEING -> {
+                return viewer.getPlayer().getUsername();
+            }
             case VELOCITAB_REL_VANISH -> {
                 if (plugin.getVanishManager().isVanished(viewer.getPlayer().getUsername())) {
                     return "true";
@@ -196,6 +185,53 @@ public class ConditionManager {
         return text;
     }
 
+    /**
+     * Get the inputs taken from the viewer by the relational tags of a configured template. Placeholders are
+     * applied before the tags, so the inputs of tags containing placeholders can't be determined from the template
+     *
+     * @param template The template
+     * @return The viewer inputs of the template
+     */
+    @NotNull
+    public RelationalInputs getRelationalInputs(@NotNull Template template) {
+        final List<String> permissions = Lists.newArrayList();
+        boolean vanish = false;
+        boolean viewerName = false;
+        boolean dynamic = false;
+        for (Template.Token token : template.getTagTokens()) {
+            if (!(token instanceof Template.Tag tag) || !tag.relational()) {
+                continue;
+            }
+
+            final String content = tag.content();
+            dynamic |= content.indexOf('%') != -1;
+            if (content.equals(VELOCITAB_REL_VANISH)) {
+                vanish = true;
+            } else if (content.equals(VELOCITAB_REL_WHO_IS_SEEING)) {
+                viewerName = true;
+            } else if (content.startsWith(VELOCITAB_REL_PLACEHOLDER_PERM)) {
+                final String cleaned = content.substring(VELOCITAB_REL_PLACEHOLDER_PERM.length());
+                final int firstSeparator = cleaned.indexOf(':');
+                if (firstSeparator != -1) {
+                    permissions.add(cleaned.substring(0, firstSeparator));
+                }
+            }
+        }
+        return new RelationalInputs(List.copyOf(permissions), vanish, viewerName, dynamic);
+    }
+
+    /**
+     * The inputs taken from the viewer by relational tags
+     *
+     * @param permissions The permissions checked by {@code velocitab_rel_perm} tags
+     * @param vanish      Whether the vanish state of the viewer is used
+     * @param viewerName  Whether the name of the viewer is used
+     * @param dynamic     Whether a tag contains placeholders, so every viewer has to be rendered separately
+     */
+    public record RelationalInputs(@NotNull List<String> permissions, boolean vanish, boolean viewerName,
+                                   boolean dynamic) {
+    }
+
     @NotNull
     private String handleConditionPlaceholders(@NotNull String text, @NotNull TabPlayer player) {
         if (text.startsWith(VELOCITAB_CONDITION)) {
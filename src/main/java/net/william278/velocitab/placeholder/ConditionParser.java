@@ -0,0 +1,310 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.velocitab.placeholder;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Optional;
+
+/**
+ * Parses the simple subset of conditions - comparisons of variables and literals joined by {@code &&}, {@code ||} and
+ * {@code !} - into a tree which is evaluated without MVEL.
+ * <p>
+ * Grammar:
+ * <pre>
+ * or         := and ('||' and)*
+ * and        := unary ('&&' unary)*
+ * unary      := '!' unary | '(' or ')' | comparison
+ * comparison := operand (('==' | '!=' | '>' | '>=' | '<' | '<=') operand)?
+ * operand    := variable | number | string | 'true' | 'false'
+ * </pre>
+ */
+final class ConditionParser {
+
+    private final String expression;
+    private final String variablePrefix;
+    private int index;
+
+    private ConditionParser(@NotNull String expression, @NotNull String variablePrefix) {
+        this.expression = expression;
+        this.variablePrefix = variablePrefix;
+    }
+
+    /**
+     * Parse an expression
+     *
+     * @param expression     The expression, with its placeholders replaced by variables
+     * @param variablePrefix The prefix of the variables, followed by their index
+     * @return The parsed tree, or empty if the expression is not part of the supported subset
+     */
+    @NotNull
+    static Optional<Node> parse(@NotNull String expression, @NotNull String variablePrefix) {
+        final ConditionParser parser = new ConditionParser(expression, variablePrefix);
+        try {
+            final Node node = parser.parseOr();
+            parser.skipWhitespace();
+            return parser.index == expression.length() ? Optional.of(node) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    @NotNull
+    private Node parseOr() {
+        Node node = parseAnd();
+        while (consume("||")) {
+            node = new Or(node, parseAnd());
+        }
+        return node;
+    }
+
+    @NotNull
+    private Node parseAnd() {
+        Node node = parseUnary();
+        while (consume("&&")) {
+            node = new And(node, parseUnary());
+        }
+        return node;
+    }
+
+    @NotNull
+    private Node parseUnary() {
+        if (!peek("!=") && consume("!")) {
+            return new Not(parseUnary());
+        }
+        if (consume("(")) {
+            final Node node = parseOr();
+            if (!consume(")")) {
+                throw new IllegalArgumentException("Missing closing parenthesis");
+            }
+            return node;
+        }
+        return parseComparison();
+    }
+
+    @NotNull
+    private Node parseComparison() {
+        final Operand left = parseOperand();
+        for (Operator operator : Operator.values()) {
+            if (consume(operator.symbol)) {
+                return new Comparison(left, operator, parseOperand());
+            }
+        }
+        return new Truthy(left);
+    }
+
+    @NotNull
+    private Operand parseOperand() {
+        skipWhitespace();
+        if (index >= expression.length()) {
+            throw new IllegalArgumentException("Missing operand");
+        }
+
+        final char c = expression.charAt(index);
+        if (c == '"' || c == '\'') {
+            final int end = expression.indexOf(c, index + 1);
+            if (end == -1) {
+                throw new IllegalArgumentException("Unterminated string");
+            }
+            final String value = expression.substring(index + 1, end);
+            index = end + 1;
+            return new Literal(value);
+        }
+
+        final int start = index;
+        while (index < expression.length() && isWordChar(expression.charAt(index))) {
+            index++;
+        }
+        final String word = expression.substring(start, index);
+        if (word.isEmpty()) {
+            throw new IllegalArgumentException("Unexpected character " + c);
+        }
+        if (word.equals("true") || word.equals("false")) {
+            return new Literal(Boolean.parseBoolean(word));
+        }
+        if (word.startsWith(variablePrefix)) {
+            return new Variable(Integer.parseInt(word.substring(variablePrefix.length())));
+        }
+        final Object number = Condition.toNumber(word);
+        if (number == null) {
+            throw new IllegalArgumentException("Unsupported operand " + word);
+        }
+        return new Literal(number);
+    }
+
+    private boolean consume(@NotNull String symbol) {
+        skipWhitespace();
+        if (expression.startsWith(symbol, index)) {
+            index += symbol.length();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean peek(@NotNull String symbol) {
+        skipWhitespace();
+        return expression.startsWith(symbol, index);
+    }
+
+    private void skipWhitespace() {
+        while (index < expression.length() && Character.isWhitespace(expression.charAt(index))) {
+            index++;
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-';
+    }
+
+    /**
+     * Thrown when values can't be compared natively, e.g. a number with a non-numeric string.
+     * The condition is then evaluated by MVEL instead.
+     */
+    static final class UnsupportedEvaluation extends RuntimeException {
+        private static final UnsupportedEvaluation INSTANCE = new UnsupportedEvaluation();
+
+        private UnsupportedEvaluation() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A boolean node of the tree
+     */
+    interface Node {
+        boolean test(@NotNull Object[] values);
+    }
+
+    private interface Operand {
+        @NotNull
+        Object value(@NotNull Object[] values);
+    }
+
+    private record Variable(int index) implements Operand {
+        @NotNull
+        @Override
+        public Object value(@NotNull Object[] values) {
+            return values[index];
+        }
+    }
+
+    private record Literal(@NotNull Object literal) implements Operand {
+        @NotNull
+        @Override
+        public Object value(@NotNull Object[] values) {
+            return literal;
+        }
+    }
+
+    private record Or(@NotNull Node left, @NotNull Node right) implements Node {
+        @Override
+        public boolean test(@NotNull Object[] values) {
+            return left.test(values) || right.test(values);
+        }
+    }
+
+    private record And(@NotNull Node left, @NotNull Node right) implements Node {
+        @Override
+        public boolean test(@NotNull Object[] values) {
+            return left.test(values) && right.test(values);
+        }
+    }
+
+    private record Not(@NotNull Node node) implements Node {
+        @Override
+        public boolean test(@NotNull Object[] values) {
+            return !node.test(values);
+        }
+    }
+
+    private record Truthy(@NotNull Operand operand) implements Node {
+        @Override
+        public boolean test(@NotNull Object[] values) {
+            if (operand.value(values) instanceof Boolean bool) {
+                return bool;
+            }
+            throw UnsupportedEvaluation.INSTANCE;
+        }
+    }
+
+    private record Comparison(@NotNull Operand left, @NotNull Operator operator, @NotNull Operand right) implements Node {
+        @Override
+        public boolean test(@NotNull Object[] values) {
+            final Object a = left.value(values);
+            final Object b = right.value(values);
+            if (a instanceof Number || b instanceof Number) {
+                return operator.test(compareNumbers(a, b));
+            }
+            if (operator == Operator.EQUAL || operator == Operator.NOT_EQUAL) {
+                return operator.test(a.equals(b) ? 0 : 1);
+            }
+            throw UnsupportedEvaluation.INSTANCE;
+        }
+
+        private static int compareNumbers(@NotNull Object a, @NotNull Object b) {
+            final Number first = toNumber(a);
+            final Number second = toNumber(b);
+            if (first instanceof Long x && second instanceof Long y) {
+                return Long.compare(x, y);
+            }
+            return Double.compare(first.doubleValue(), second.doubleValue());
+        }
+
+        @NotNull
+        private static Number toNumber(@NotNull Object value) {
+            if (value instanceof Number number) {
+                return number;
+            }
+            final Number number = value instanceof String string ? Condition.toNumber(string.trim()) : null;
+            if (number == null) {
+                throw UnsupportedEvaluation.INSTANCE;
+            }
+            return number;
+        }
+    }
+
+    // Ordered so that two-character operators are matched before their one-character prefixes
+    private enum Operator {
+        EQUAL("=="),
+        NOT_EQUAL("!="),
+        GREATER_OR_EQUAL(">="),
+        LESS_OR_EQUAL("<="),
+        GREATER(">"),
+        LESS("<");
+
+        private final String symbol;
+
+        Operator(@NotNull String symbol) {
+            this.symbol = symbol;
+        }
+
+        private boolean test(int comparison) {
+            return switch (this) {
+                case EQUAL -> comparison == 0;
+                case NOT_EQUAL -> comparison != 0;
+                case GREATER_OR_EQUAL -> comparison >= 0;
+                case LESS_OR_EQUAL -> comparison <= 0;
+                case GREATER -> comparison > 0;
+                case LESS -> comparison < 0;
+            };
+        }
+    }
+
+}
@@ -33,6 +33,7 @@ import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -57,38 +58,32 @@ public enum Placeholder {
                 .map(group -> Integer.toString(group.getPlayers(plugin).size()))
                 .orElse("Group " + param + " not found");
     }),
-    CURRENT_DATE_DAY((plugin, player) -> DateTimeFormatter.ofPattern("dd").format(LocalDateTime.now())),
+    CURRENT_DATE_DAY((plugin, player) -> Formats.DAY.format(LocalDateTime.now())),
     CURRENT_DATE_WEEKDAY((param, plugin, player) -> {
         if (param == null) {
-            return DateTimeFormatter.ofPattern("EEEE").format(LocalDateTime.now());
+            return Formats.WEEKDAY.format(LocalDateTime.now());
         }
 
-        final String countryCode = param.toUpperCase();
-        final Locale locale = Locale.forLanguageTag(countryCode);
-        return DateTimeFormatter.ofPattern("EEEE").withLocale(locale).format(LocalDateTime.now());
+        return Formats.weekday(param).format(LocalDateTime.now());
     }),
-    CURRENT_DATE_MONTH((plugin, player) -> DateTimeFormatter.ofPattern("MM").format(LocalDateTime.now())),
-    CURRENT_DATE_YEAR((plugin, player) -> DateTimeFormatter.ofPattern("yyyy").format(LocalDateTime.now())),
+    CURRENT_DATE_MONTH((plugin, player) -> Formats.MONTH.format(LocalDateTime.now())),
+    CURRENT_DATE_YEAR((plugin, player) -> Formats.YEAR.format(LocalDateTime.now())),
     CURRENT_DATE((param, plugin, player) -> {
         if (param == null) {
-            return DateTimeFormatter.ofPattern("dd/MM/yyyy").format(LocalDateTime.now());
+            return Formats.DATE.format(LocalDateTime.now());
         }
 
-        final String countryCode = param.toUpperCase();
-        final Locale locale = Locale.forLanguageTag(countryCode);
-        return DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT).withLocale(locale).format(LocalDateTime.now());
+        return Formats.localizedDate(param).format(LocalDateTime.now());
     }),
-    CURRENT_TIME_HOUR((plugin, player) -> DateTimeFormatter.ofPattern("HH").format(LocalDateTime.now())),
-    CURRENT_TIME_MINUTE((plugin, player) -> DateTimeFormatter.ofPattern("mm").format(LocalDateTime.now())),
-    CURRENT_TIME_SECOND((plugin, player) -> DateTimeFormatter.ofPattern("ss").format(LocalDateTime.now())),
+    CURRENT_TIME_HOUR((plugin, player) -> Formats.HOUR.format(LocalDateTime.now())),
+    CURRENT_TIME_MINUTE((plugin, player) -> Formats.MINUTE.format(LocalDateTime.now())),
+    CURRENT_TIME_SECOND((plugin, player) -> Formats.SECOND.format(LocalDateTime.now())),
     CURRENT_TIME((param, plugin, player) -> {
         if (param == null) {
-            return DateTimeFormatter.ofPattern("HH:mm:ss").format(LocalTime.now());
+            return Formats.TIME.format(LocalTime.now());
         }
 
-        final String countryCode = param.toUpperCase();
-        final Locale locale = Locale.forLanguageTag(countryCode);
-        return DateTimeFormatter.ofLocalizedTime(FormatStyle.SHORT).withLocale(locale).format(LocalTime.now());
+        return Formats.localizedTime(param).format(LocalTime.now());
     }),
     USERNAME((plugin, player) -> player.getCustomName().orElse(player.getPlayer().getUsername())),
     USERNAME_LOWER((plugin, player) -> player.getCustomName().orElse(player.getPlayer().getUsername()).toLowerCase()),
@@ -119,6 +114,7 @@ public enum Placeholder {
         return Integer.toString(plugin.getServer().getServer(param).map(RegisteredServer::getPlayersConnected).map(Collection::size).orElse(0));
     }),
     DEBUG_TEAM_NAME((plugin, player) -> plugin.getFormatter().escape(player.getLastTeamName().orElse(""))),
+    QOS_LEVEL((plugin, player) -> Integer.toString(plugin.getTabList().getTaskManager().getQualityController().getLevel())),
     LUCKPERMS_META((param, plugin, player) -> plugin.getLuckPermsHook()
             .map(hook -> hook.getMeta(player.getPlayer(), param))
             .orElse(getPlaceholderFallback(plugin, "%luckperms_meta_" + param + "%"))),
@@ -162,6 +158,42 @@ public enum Placeholder {
         this.pattern = Pattern.compile("%" + this.name().toLowerCase() + "[^%]*%", Pattern.CASE_INSENSITIVE);
     }
 
+    /**
+     * Get the built-in refresh policy of this placeholder
+     *
+     * @return {@link RefreshPolicy#STATIC} for placeholders which only change on a server switch or a LuckPerms
+     * recalculation, {@link RefreshPolicy#TICK} otherwise
+     */
+    @NotNull
+    public RefreshPolicy getRefreshPolicy() {
+        return switch (this) {
+            case SERVER, SERVER_GROUP, SERVER_GROUP_INDEX, PREFIX, SUFFIX, ROLE, ROLE_DISPLAY_NAME, ROLE_WEIGHT,
+                 LUCKPERMS_META, BACKEND_LUCKPERMS_META_WEIGHT, BACKEND_LUCKPERMS_PREFIX, BACKEND_LUCKPERMS_SUFFIX ->
+                    RefreshPolicy.STATIC;
+            default -> RefreshPolicy.TICK;
+        };
+    }
+
+    /**
+     * Get the scope of this placeholder, which determines which players share its value
+     *
+     * @param param The parameter of the placeholder, if it is parameterised
+     * @return The scope of the placeholder
+     */
+    @NotNull
+    public Scope getScope(@Nullable String param) {
+        return switch (this) {
+            case PLAYERS_ONLINE, MAX_PLAYERS_ONLINE, CURRENT_DATE_DAY, CURRENT_DATE_WEEKDAY, CURRENT_DATE_MONTH,
+                 CURRENT_DATE_YEAR, CURRENT_DATE, CURRENT_TIME_HOUR, CURRENT_TIME_MINUTE, CURRENT_TIME_SECOND,
+                 CURRENT_TIME, QOS_LEVEL -> Scope.GLOBAL;
+            case LOCAL_PLAYERS_ONLINE, SERVER -> Scope.SERVER;
+            case SERVER_ONLINE_PLAYERS -> param == null ? Scope.SERVER : Scope.GLOBAL;
+            case GROUP_PLAYERS_ONLINE -> param == null ? Scope.GROUP : Scope.GLOBAL;
+            case SERVER_GROUP, SERVER_GROUP_INDEX -> Scope.GROUP;
+            default -> Scope.PLAYER;
+        };
+    }
+
     @NotNull
     private static String getPlaceholderFallback(@NotNull Velocitab plugin, @NotNull String fallback) {
         if (plugin.getPAPIProxyBridgeHook().isPresent() && plugin.getSettings().isFallbackToPapiIfPlaceholderBlank()) {
@@ -173,4 +205,79 @@ public enum Placeholder {
     public static Optional<Placeholder> byName(@NotNull String name) {
         return Optional.ofNullable(BY_NAME.get(name.toLowerCase().replace("%", "")));
     }
+
+    /**
+     * The players sharing the value of a placeholder
+     */
+    public enum Scope {
+        /**
+         * The value is the same for every player
+         */
+        GLOBAL,
+        /**
+         * The value is the same for every player on the same server
+         */
+        SERVER,
+        /**
+         * The value is the same for every player in the same group
+         */
+        GROUP,
+        /**
+         * The value is specific to each player
+         */
+        PLAYER;
+
+        /**
+         * Get the key identifying the players sharing a value in this scope
+         *
+         * @param player The player
+         * @return The key, or {@code null} for the player scope
+         */
+        @Nullable
+        public String getKey(@NotNull TabPlayer player) {
+            return switch (this) {
+                case GLOBAL -> "";
+                case SERVER -> player.getServerName();
+                case GROUP -> player.getGroup().name();
+                case PLAYER -> null;
+            };
+        }
+    }
+
+    // Formatters are immutable and thread-safe, so they are created once instead of on every replacement
+    private static final class Formats {
+        private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("dd");
+        private static final DateTimeFormatter WEEKDAY = DateTimeFormatter.ofPattern("EEEE");
+        private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("MM");
+        private static final DateTimeFormatter YEAR = DateTimeFormatter.ofPattern("yyyy");
+        private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("HH");
+        private static final DateTimeFormatter MINUTE = DateTimeFormatter.ofPattern("mm");
+        private static final DateTimeFormatter SECOND = DateTimeFormatter.ofPattern("ss");
+        private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+        private static final Map<String, DateTimeFormatter> LOCALIZED = new ConcurrentHashMap<>();
+
+        @NotNull
+        private static DateTimeFormatter weekday(@NotNull String countryCode) {
+            return LOCALIZED.computeIfAbsent("weekday:" + countryCode.toUpperCase(),
+                    key -> WEEKDAY.withLocale(getLocale(countryCode)));
+        }
+
+        @NotNull
+        private static DateTimeFormatter localizedDate(@NotNull String countryCode) {
+            return LOCALIZED.computeIfAbsent("date:" + countryCode.toUpperCase(),
+                    key -> DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT).withLocale(getLocale(countryCode)));
+        }
+
+        @NotNull
+        private static DateTimeFormatter localizedTime(@NotNull String countryCode) {
+            return LOCALIZED.computeIfAbsent("time:" + countryCode.toUpperCase(),
+                    key -> DateTimeFormatter.ofLocalizedTime(FormatStyle.SHORT).withLocale(getLocale(countryCode)));
+        }
+
+        @NotNull
+        private static Locale getLocale(@NotNull String countryCode) {
+            return Locale.forLanguageTag(countryCode.toUpperCase());
+        }
+    }
 }
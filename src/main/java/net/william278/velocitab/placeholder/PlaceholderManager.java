@@ -23,19 +23,23 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.velocitypowered.api.proxy.Player;
+import lombok.Getter;
 import lombok.Setter;
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
 import net.william278.velocitab.Velocitab;
 import net.william278.velocitab.config.Group;
+import net.william278.velocitab.hook.PAPIProxyBridgeHook;
 import net.william278.velocitab.player.Role;
 import net.william278.velocitab.player.TabPlayer;
 import net.william278.velocitab.tab.PlayerTabList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.event.Level;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
 
 public class PlaceholderManager {
 
@@ -44,18 +48,30 @@ public class PlaceholderManager {
 
     private static final String ELSE_PLACEHOLDER = "else";
     private static final String DEFAULT_PLACEHOLDER = "%placeholder_value%";
+    private static final String TAG_START = "<velocitab";
 
-    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("%.*?%", Pattern.DOTALL);
-    private static final Pattern VELOCITAB_PLACEHOLDERS = Pattern.compile("<velocitab[^<>]*(?:<(?!v)[^<>]*>[^<>]*)*>");
-    private static final Pattern VELOCITAB_REL_PLACEHOLDERS = Pattern.compile("<velocitab_rel[^<>]*(?:<(?!v)[^<>]*>[^<>]*)*>");
 
     private final Velocitab plugin;
     private final Map<UUID, Map<String, String>> placeholders;
     private final Map<UUID, Set<CompletableFuture<?>>> requests;
     private final Map<Group, List<String>> cachedTexts;
+    // Templates of the configured group texts, compiled when the groups are loaded
+    private Map<String, Template> groupTemplates;
+    // Templates of other configured texts, such as server link labels, compiled on first use. Rendered texts are
+    // never compiled, so values of placeholders don't add entries
+    private final Map<String, Template> templates;
     private final Set<UUID> blocked;
+    @Getter
     private final ConditionManager conditionManager;
+    @Getter
+    private final PlaceholderRequestTracker requestTracker;
+    private final PlaceholderSnapshot snapshot;
     private Map<Group, Map<String, Map<String, String>>> placeholdersReplacements;
+    private Map<Group, Map<String, RefreshPolicy>> refreshPolicies;
+    // Names of the groups whose nametag depends on the viewer
+    private Set<String> relationalNametags;
+    // When each placeholder of a player was last fetched, used to skip placeholders which are not due yet
+    private final Map<UUID, Map<String, Long>> lastRefresh;
 
     public PlaceholderManager(Velocitab plugin) {
         this.plugin = plugin;
@@ -63,14 +79,35 @@ public class PlaceholderManager {
         this.requests = Maps.newConcurrentMap();
         this.blocked = Sets.newConcurrentHashSet();
         this.cachedTexts = Maps.newConcurrentMap();
+        this.groupTemplates = Maps.newConcurrentMap();
+        this.templates = ExpiringMap.builder()
+                .expiration(5, TimeUnit.MINUTES)
+                .expirationPolicy(ExpirationPolicy.ACCESSED)
+                .maxSize(10000)
+                .build();
         this.conditionManager = new ConditionManager(plugin);
+        this.requestTracker = new PlaceholderRequestTracker();
+        this.snapshot = new PlaceholderSnapshot();
         this.placeholdersReplacements = Maps.newConcurrentMap();
+        this.refreshPolicies = Maps.newConcurrentMap();
+        this.relationalNametags = Set.of();
+        this.lastRefresh = Maps.newConcurrentMap();
         this.preparePlaceholdersReplacements();
     }
 
     public void preparePlaceholdersReplacements() {
         placeholdersReplacements = Maps.newConcurrentMap();
+        templates.clear();
+        final Map<String, Template> compiled = Maps.newConcurrentMap();
+        final Map<Group, Map<String, RefreshPolicy>> policies = Maps.newConcurrentMap();
+        final Set<String> relational = Sets.newHashSet();
         for (Group group : plugin.getTabGroupsManager().getGroups()) {
+            compileGroupTemplates(group, compiled);
+            policies.put(group, parseRefreshPolicies(group));
+            if (isRelational(group.nametag().prefix()) || isRelational(group.nametag().suffix())) {
+                relational.add(group.name());
+            }
+
             final Map<String, Map<String, String>> map = Maps.newHashMap();
             placeholdersReplacements.put(group, map);
             for (String placeholder : group.placeholderReplacements().keySet()) {
@@ -81,6 +118,86 @@ public class PlaceholderManager {
                 }
             }
         }
+        groupTemplates = compiled;
+        refreshPolicies = policies;
+        relationalNametags = Set.copyOf(relational);
+    }
+
+    private boolean isRelational(@NotNull String text) {
+        final Template template = getTemplate(text);
+        return template.isRelational() || template.getPlaceholderTokens().stream()
+                .anyMatch(token -> token instanceof Template.PlaceholderToken placeholder && placeholder.isTarget());
+    }
+
+    /**
+     * Check whether the nametag of a group contains {@code %target_} placeholders or relational tags, and so has to
+     * be rendered for each viewer
+     *
+     * @param group The group
+     * @return {@code true} if the nametag depends on the viewer
+     */
+    public boolean isRelationalNametag(@NotNull Group group) {
+        return relationalNametags.contains(group.name());
+    }
+
+    @NotNull
+    private Map<String, RefreshPolicy> parseRefreshPolicies(@NotNull Group group) {
+        final Map<String, RefreshPolicy> policies = Maps.newHashMap();
+        if (group.placeholderRefreshPolicies() == null) {
+            return policies;
+        }
+
+        group.placeholderRefreshPolicies().forEach((placeholder, text) -> {
+            final Optional<RefreshPolicy> policy = RefreshPolicy.parse(text);
+            if (policy.isEmpty()) {
+                plugin.log(Level.WARN, "Invalid refresh policy " + text + " for placeholder " + placeholder
+                                       + " in group " + group.name() + ", expected static, tick or ttl:<milliseconds>");
+                return;
+            }
+            policies.put(placeholder.toLowerCase(Locale.ROOT), policy.get());
+        });
+        return policies;
+    }
+
+    @NotNull
+    private RefreshPolicy getRefreshPolicy(@NotNull Group group, @NotNull Template.PlaceholderToken token) {
+        final String placeholder = token.targetPlaceholder();
+        final Map<String, RefreshPolicy> policies = refreshPolicies.get(group);
+        final RefreshPolicy policy = policies == null ? null : policies.get(placeholder.toLowerCase(Locale.ROOT));
+        return policy != null ? policy : RefreshPolicy.getDefault(placeholder, token.builtin());
+    }
+
+    private void compileGroupTemplates(@NotNull Group group, @NotNull Map<String, Template> compiled) {
+        final List<String> texts = Lists.newArrayList(group.getTextsWithPlaceholders(plugin));
+        for (int i = 0; i < group.headers().size(); i++) {
+            texts.add(group.getHeader(i));
+        }
+        for (int i = 0; i < group.footers().size(); i++) {
+            texts.add(group.getFooter(i));
+        }
+        texts.forEach(text -> compiled.computeIfAbsent(text, Template::compile));
+
+        final Template format = compiled.get(group.format());
+        if (format != null && format.isRelational()) {
+            final String stripped = stripVelocitabRelPlaceholders(format.getTagTokens(), format.getText().length());
+            compiled.computeIfAbsent(stripped, Template::compile);
+        }
+    }
+
+    /**
+     * Get the compiled template of a configured text. Texts with placeholder values applied must not be passed, as
+     * every value would compile and cache another template
+     *
+     * @param text The text
+     * @return The compiled template
+     */
+    @NotNull
+    public Template getTemplate(@NotNull String text) {
+        final Template template = groupTemplates.get(text);
+        if (template != null) {
+            return template;
+        }
+        return templates.computeIfAbsent(text, Template::compile);
     }
 
     public void fetchPlaceholders(@NotNull Group group) {
@@ -90,6 +207,46 @@ public class PlaceholderManager {
 
     public void reload() {
         cachedTexts.clear();
+        requestTracker.clear();
+        lastRefresh.clear();
+        snapshot.clear();
+    }
+
+    /**
+     * Make all placeholders of a player due again, including static ones
+     *
+     * @param uuid The player's UUID
+     */
+    public void invalidatePlaceholders(@NotNull UUID uuid) {
+        lastRefresh.remove(uuid);
+    }
+
+    /**
+     * Check whether the placeholders of a group are ready to be displayed for a player.
+     * A placeholder is ready once it was fetched since the player's placeholders were last cleared, or its backend
+     * request completed without a value.
+     *
+     * @param uuid  The player's UUID
+     * @param group The group
+     * @return {@code true} if no placeholder of the group is still waiting for a value
+     */
+    public boolean isReady(@NotNull UUID uuid, @NotNull Group group) {
+        final Map<String, Long> refreshed = lastRefresh.get(uuid);
+        if (refreshed == null || blocked.contains(uuid)) {
+            return false;
+        }
+
+        // Backend placeholders can't be fetched without PAPIProxyBridge
+        final boolean backend = plugin.getPAPIProxyBridgeHook().isPresent();
+        final List<String> texts = cachedTexts.computeIfAbsent(group, g -> g.getTextsWithPlaceholders(plugin));
+        for (String text : texts) {
+            for (String placeholder : getTemplate(text).getPlaceholders()) {
+                if (!refreshed.containsKey(placeholder) && backend && !requestTracker.isSettled(uuid, placeholder)) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     public void fetchPlaceholders(@NotNull UUID uuid, @NotNull List<String> texts, @NotNull Group group) {
@@ -109,81 +266,227 @@ public class PlaceholderManager {
                         plugin.getTabList().getGroupOrDefault(player),
                         player.hasPermission(PlayerTabList.RELATIONAL_PERMISSION)));
 
-        final List<String> placeholders = texts.stream()
-                .map(PlaceholderManager::extractPlaceholders)
-                .flatMap(List::stream)
-                .map(s -> s.replace("%target_", "%"))
+        final long start = System.currentTimeMillis();
+        final Map<String, Long> refreshed = lastRefresh.computeIfAbsent(uuid, k -> Maps.newConcurrentMap());
+        final List<Template.PlaceholderToken> placeholders = texts.stream()
+                .map(this::getTemplate)
+                .flatMap(template -> template.getPlaceholderTokens().stream())
+                .filter(token -> token instanceof Template.PlaceholderToken)
+                .map(token -> (Template.PlaceholderToken) token)
+                .filter(token -> getRefreshPolicy(group, token).isDue(refreshed.get(token.targetPlaceholder()), start))
                 .toList();
+        if (placeholders.isEmpty()) {
+            return;
+        }
 
-        final long start = System.currentTimeMillis();
+        final Map<String, BackendRequest> backendRequests = Maps.newLinkedHashMap();
 
-        placeholders.forEach(placeholder -> {
-            final Optional<PlaceholderResult> result = replaceSingle(placeholder, plugin, tabPlayer);
+        placeholders.forEach(token -> {
+            final String placeholder = token.targetPlaceholder();
+            final Optional<PlaceholderResult> result = replaceSingle(token, plugin, tabPlayer);
             if (result.isPresent() && !result.get().isForBackend()) {
-                parsed.put(placeholder, result.get().postParsed());
+                storePlaceholder(tabPlayer, parsed, placeholder, result.get().postParsed());
+                refreshed.put(placeholder, start);
                 return;
             }
 
             final String key = result.isPresent() ? result.get().preParsed() : placeholder;
             final String toParse = result.isPresent() ? result.get().postParsed() : placeholder;
-            plugin.getPAPIProxyBridgeHook().ifPresent(hook -> {
-                final CompletableFuture<String> future = hook.formatPlaceholders(toParse, player);
-                requests.computeIfAbsent(player.getUniqueId(), u -> Sets.newConcurrentHashSet()).add(future);
-                future.thenAccept(replacement -> {
-                    if (replacement == null || replacement.equals(placeholder)) {
-                        return;
-                    }
-
-                    if (blocked.contains(player.getUniqueId())) {
-                        return;
-                    }
-
-                    if (debug) {
-                        plugin.getLogger().info("Placeholder {} replaced with  {} in {}ms", placeholder, replacement, System.currentTimeMillis() - start);
-                    }
-
-                    final long diff = System.currentTimeMillis() - start;
-                    if (diff > group.placeholderUpdateRate()) {
-                        final long increase = diff + 100;
-                        plugin.getLogger().warn("""
-                                                    Placeholder {} took more than group placeholder update rate of {} ms to update. This may cause a thread leak.
-                                                    Please fix the issue of the plugin providing the placeholder.
-                                                    If you can't fix it, increase the placeholder update rate of the group to at least {} ms.
-                                                    """
-                                , placeholder, group.placeholderUpdateRate(), increase);
-                    }
-
-                    requests.get(player.getUniqueId()).remove(future);
-                    parsed.put(key, replacement);
-                });
-            });
+            backendRequests.putIfAbsent(placeholder, new BackendRequest(placeholder, key, toParse));
+        });
+
+        if (backendRequests.isEmpty()) {
+            return;
+        }
+
+        plugin.getPAPIProxyBridgeHook().ifPresent(hook -> {
+            // Skip placeholders which are still being requested or are backed off
+            final List<BackendRequest> pending = backendRequests.values().stream()
+                    .filter(request -> requestTracker.tryRequest(uuid, request.placeholder()))
+                    .toList();
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            if (plugin.getSettings().isBatchPapiRequests() && pending.size() > 1) {
+                requestBatch(hook, pending, player, tabPlayer, parsed, group, start);
+                return;
+            }
+
+            pending.forEach(request -> requestSingle(hook, request, player, tabPlayer, parsed, group, start));
         });
     }
 
+    private void requestSingle(@NotNull PAPIProxyBridgeHook hook, @NotNull BackendRequest request, @NotNull Player player,
+                               @NotNull TabPlayer tabPlayer, @NotNull Map<String, String> parsed, @NotNull Group group,
+                               long start) {
+        final CompletableFuture<String> future = hook.formatPlaceholders(request.toParse(), player);
+        requests.computeIfAbsent(player.getUniqueId(), u -> Sets.newConcurrentHashSet()).add(future);
+        future.whenComplete((replacement, error) -> {
+            Optional.ofNullable(requests.get(player.getUniqueId())).ifPresent(set -> set.remove(future));
+            if (error != null) {
+                if (!blocked.contains(player.getUniqueId())) {
+                    requestTracker.timedOut(player.getUniqueId(), request.placeholder());
+                }
+                return;
+            }
+
+            handleReplacement(request, replacement, player, tabPlayer, parsed, group, start);
+        });
+    }
+
+    // Sends all of a player's backend placeholders as one request, falling back to single requests if it can't be split
+    private void requestBatch(@NotNull PAPIProxyBridgeHook hook, @NotNull List<BackendRequest> pending, @NotNull Player player,
+                              @NotNull TabPlayer tabPlayer, @NotNull Map<String, String> parsed, @NotNull Group group,
+                              long start) {
+        final List<String> inputs = pending.stream().map(BackendRequest::toParse).toList();
+        final CompletableFuture<Optional<List<String>>> future = hook.formatPlaceholders(inputs, player);
+        requests.computeIfAbsent(player.getUniqueId(), u -> Sets.newConcurrentHashSet()).add(future);
+        future.whenComplete((result, error) -> {
+            Optional.ofNullable(requests.get(player.getUniqueId())).ifPresent(set -> set.remove(future));
+            if (blocked.contains(player.getUniqueId())) {
+                return;
+            }
+
+            if (error != null) {
+                pending.forEach(request -> requestTracker.timedOut(player.getUniqueId(), request.placeholder()));
+                return;
+            }
+
+            if (result.isEmpty()) {
+                if (debug) {
+                    plugin.getLogger().info("Failed to split batched placeholders {}, requesting them one by one", inputs);
+                }
+                pending.forEach(request -> requestSingle(hook, request, player, tabPlayer, parsed, group, start));
+                return;
+            }
+
+            final List<String> replacements = result.get();
+            for (int i = 0; i < pending.size(); i++) {
+                handleReplacement(pending.get(i), replacements.get(i), player, tabPlayer, parsed, group, start);
+            }
+        });
+    }
+
+    private void handleReplacement(@NotNull BackendRequest request, @Nullable String replacement, @NotNull Player player,
+                                   @NotNull TabPlayer tabPlayer, @NotNull Map<String, String> parsed, @NotNull Group group,
+                                   long start) {
+        final String placeholder = request.placeholder();
+        if (blocked.contains(player.getUniqueId())) {
+            return;
+        }
+
+        if (replacement == null || replacement.equals(placeholder)) {
+            requestTracker.unresolved(player.getUniqueId(), placeholder);
+            return;
+        }
+
+        requestTracker.resolved(player.getUniqueId(), placeholder);
+        Optional.ofNullable(lastRefresh.get(player.getUniqueId())).ifPresent(map -> map.put(placeholder, start));
+
+        if (debug) {
+            plugin.getLogger().info("Placeholder {} replaced with  {} in {}ms", placeholder, replacement, System.currentTimeMillis() - start);
+        }
+
+        final long diff = System.currentTimeMillis() - start;
+        if (diff > group.placeholderUpdateRate()) {
+            final long increase = diff + 100;
+            plugin.getLogger().warn("""
+                                        Placeholder {} took more than group placeholder update rate of {} ms to update. This may cause a thread leak.
+                                        Please fix the issue of the plugin providing the placeholder.
+                                        If you can't fix it, increase the placeholder update rate of the group to at least {} ms.
+                                        """
+                    , placeholder, group.placeholderUpdateRate(), increase);
+        }
+
+        storePlaceholder(tabPlayer, parsed, request.key(), replacement);
+    }
+
+    private void storePlaceholder(@NotNull TabPlayer player, @NotNull Map<String, String> parsed,
+                                  @NotNull String placeholder, @NotNull String value) {
+        final String previous = parsed.put(placeholder, value);
+        if (value.equals(previous)) {
+            return;
+        }
+
+        // Only flag the display name if the changed placeholder is part of the group format,
+        // either directly or as a relational %target_% placeholder, which are listed without their prefix
+        if (getTemplate(player.getGroup().format()).getPlaceholders().contains(placeholder)) {
+            player.markDirty();
+        }
+    }
+
     @NotNull
     public String applyPlaceholders(@NotNull TabPlayer player, @NotNull String text) {
-        final Map<String, String> parsed = placeholders.computeIfAbsent(player.getPlayer().getUniqueId(), uuid -> Maps.newConcurrentMap());
-        return applyPlaceholdersAndReplacements(text, player, parsed);
+        final Template template = getTemplate(text);
+        if (!template.hasPlaceholders()) {
+            return text;
+        }
+
+        final Map<String, String> parsed = getParsed(player);
+        final StringBuilder builder = new StringBuilder(text.length());
+        for (Template.Token token : template.getPlaceholderTokens()) {
+            if (token instanceof Template.Literal literal) {
+                builder.append(literal.text());
+                continue;
+            }
+
+            final Template.PlaceholderToken placeholderToken = (Template.PlaceholderToken) token;
+            // The placeholders in a condition are bound when it's evaluated, so its text stays the same
+            builder.append(placeholderToken.condition() ? placeholderToken.placeholder()
+                    : applyPlaceholder(placeholderToken.placeholder(), player, parsed));
+        }
+        return builder.toString();
     }
 
+    /**
+     * Apply the placeholders of a player to a text, and its {@code %target_} placeholders as the viewer's own
+     * placeholders, in a single pass over the template of the text
+     *
+     * @param player The player the text is rendered for
+     * @param text   The configured text
+     * @param viewer The viewer
+     * @return The text with placeholders applied
+     */
     @NotNull
     public String applyPlaceholders(@NotNull TabPlayer player, @NotNull String text, @NotNull TabPlayer viewer) {
-        final Map<String, String> parsed = placeholders.computeIfAbsent(player.getPlayer().getUniqueId(), uuid -> Maps.newConcurrentMap());
-        final String applied = applyPlaceholdersAndReplacements(text, player, parsed);
+        final Template template = getTemplate(text);
+        if (!template.hasPlaceholders()) {
+            return text.replace("%target_", "%");
+        }
+
+        final Map<String, String> parsed = getParsed(player);
+        final Map<String, String> viewerParsed = getParsed(viewer);
+        final StringBuilder builder = new StringBuilder(text.length());
+        for (Template.Token token : template.getPlaceholderTokens()) {
+            if (token instanceof Template.Literal literal) {
+                builder.append(literal.targetText());
+                continue;
+            }
 
-        final Map<String, String> targetParsed = placeholders.computeIfAbsent(viewer.getPlayer().getUniqueId(), uuid -> Maps.newConcurrentMap());
-        return applyPlaceholdersAndReplacements(applied.replace("%target_", "%"), viewer, targetParsed);
+            final Template.PlaceholderToken placeholderToken = (Template.PlaceholderToken) token;
+            if (placeholderToken.isTarget()) {
+                builder.append(applyPlaceholder(placeholderToken.targetPlaceholder(), viewer, viewerParsed));
+            } else if (placeholderToken.condition()) {
+                // The player's placeholders in a condition are bound when it's evaluated
+                builder.append(placeholderToken.placeholder());
+            } else {
+                builder.append(applyPlaceholder(placeholderToken.placeholder(), player, parsed));
+            }
+        }
+        return builder.toString();
     }
 
     @NotNull
-    public String applyViewerPlaceholders(@NotNull TabPlayer viewer, @NotNull String text) {
-        final Map<String, String> parsed = placeholders.computeIfAbsent(viewer.getPlayer().getUniqueId(), uuid -> Maps.newConcurrentMap());
-        return applyPlaceholdersAndReplacements(text.replace("%target_", "%"), viewer, parsed);
+    private Map<String, String> getParsed(@NotNull TabPlayer player) {
+        return placeholders.computeIfAbsent(player.getPlayer().getUniqueId(), uuid -> Maps.newConcurrentMap());
     }
 
     public void clearPlaceholders(@NotNull UUID uuid) {
         blocked.add(uuid);
         placeholders.remove(uuid);
+        requestTracker.clear(uuid);
+        lastRefresh.remove(uuid);
         Optional.ofNullable(requests.get(uuid)).ifPresent(set -> set.forEach(c -> c.cancel(true)));
     }
 
@@ -192,17 +495,6 @@ public class PlaceholderManager {
         requests.remove(uuid);
     }
 
-    @NotNull
-    private static List<String> extractPlaceholders(@NotNull String text) {
-        final List<String> placeholders = Lists.newArrayList();
-        final Matcher matcher = PLACEHOLDER_PATTERN.matcher(text);
-        while (matcher.find()) {
-            placeholders.add(matcher.group());
-        }
-
-        return placeholders;
-    }
-
 
     @Nullable
     private String getReplacement(@NotNull Group group, @NotNull String placeholder, @NotNull String text) {
@@ -229,45 +521,20 @@ public class PlaceholderManager {
         return replacementText.replace(DEFAULT_PLACEHOLDER, originalValue);
     }
 
+    // Get the value of a placeholder of a player, with the replacements of the player's group applied
     @NotNull
-    private String applyPlaceholdersAndReplacements(@NotNull String text, @NotNull TabPlayer player,
-                                                    @NotNull Map<String, String> parsed) {
-        final Matcher matcher = PLACEHOLDER_PATTERN.matcher(text);
-        final StringBuilder builder = new StringBuilder(text.length());
-        int lastAppendPosition = 0;
-        final Map<String, List<PlaceholderReplacement>> groupReplacements = player.getGroup().placeholderReplacements();
-
-        while (matcher.find()) {
-            builder.append(text, lastAppendPosition, matcher.start());
-            final String placeholder = matcher.group();
-
-            String replacementToAppend = null;
-
-            if (groupReplacements.containsKey(placeholder)) {
-                final String currentValue = parsed.getOrDefault(placeholder, placeholder);
-                if (currentValue != null) {
-                    final String rawReplacement = getReplacement(player.getGroup(), placeholder, currentValue);
-
-                    if (rawReplacement != null) {
-                        replacementToAppend = applyDefaultReplacement(rawReplacement, currentValue);
-                    }
-                }
-            }
-
-            if (replacementToAppend == null) {
-                replacementToAppend = parsed.get(placeholder);
+    private String applyPlaceholder(@NotNull String placeholder, @NotNull TabPlayer player,
+                                    @NotNull Map<String, String> parsed) {
+        if (player.getGroup().placeholderReplacements().containsKey(placeholder)) {
+            final String currentValue = parsed.getOrDefault(placeholder, placeholder);
+            final String rawReplacement = getReplacement(player.getGroup(), placeholder, currentValue);
+            if (rawReplacement != null) {
+                return applyDefaultReplacement(rawReplacement, currentValue);
             }
-
-            if (replacementToAppend == null) {
-                replacementToAppend = placeholder;
-            }
-
-            builder.append(replacementToAppend);
-            lastAppendPosition = matcher.end();
         }
 
-        builder.append(text, lastAppendPosition, text.length());
-        return builder.toString();
+        final String value = parsed.get(placeholder);
+        return value != null ? value : placeholder;
     }
 
     public Optional<String> getCachedPlaceholderValue(@NotNull String text, @NotNull UUID uuid) {
@@ -278,96 +545,99 @@ public class PlaceholderManager {
         return Optional.ofNullable(placeholders.get(uuid).get(text));
     }
 
-    private Optional<PlaceholderResult> replaceSingle(@NotNull String placeholder, @NotNull Velocitab plugin, @NotNull TabPlayer player) {
-        final Optional<Placeholder> optionalPlaceholder = Placeholder.byName(placeholder);
-        if (optionalPlaceholder.isEmpty()) {
-            //check if it's parameterised
-            for (Placeholder placeholderType : Placeholder.getPARAMETERISED()) {
-                final java.util.regex.Matcher matcher = placeholderType.getPattern().matcher(placeholder);
-                if (matcher.find()) {
-                    final String s = chop(matcher.group().replace("%" + placeholderType.name().toLowerCase(), "")
-                            .replaceFirst("_", ""));
-                    return Optional.of(new PlaceholderResult(placeholder, false, placeholderType.getReplacer().apply(s, plugin, player)));
-                }
-            }
-
+    private Optional<PlaceholderResult> replaceSingle(@NotNull Template.PlaceholderToken token, @NotNull Velocitab plugin, @NotNull TabPlayer player) {
+        final Placeholder placeholderType = token.builtin();
+        if (placeholderType == null) {
             return Optional.empty();
         }
 
-        final Placeholder placeholderType = optionalPlaceholder.get();
+        final String placeholder = token.targetPlaceholder();
+        if (placeholderType.isParameterised()) {
+            return Optional.of(new PlaceholderResult(placeholder, false, snapshot.get(token, player,
+                    () -> placeholderType.getReplacer().apply(token.parameter(), plugin, player))));
+        }
+
         if (placeholderType.isForBackend()) {
             return Optional.of(new PlaceholderResult(placeholder, true, placeholderType.getReplacer().apply(null, plugin, player)));
         }
 
-        return Optional.of(new PlaceholderResult(placeholder, false, placeholderType.getReplacer().apply(null, plugin, player)));
+        return Optional.of(new PlaceholderResult(placeholder, false, snapshot.get(token, player,
+                () -> placeholderType.getReplacer().apply(null, plugin, player))));
     }
 
+    /**
+     * Get the tags of a text. Texts which aren't configured group texts are rendered ones, so their tags are scanned
+     * each time instead of compiling and caching a template for every value
+     *
+     * @param text The text
+     * @return The tag tokens, or an empty list if the text has no tags
+     */
     @NotNull
-    private String chop(@NotNull String text) {
-        int strLen = text.length();
-        if (strLen < 2) {
-            return "";
-        } else {
-            int lastIdx = strLen - 1;
-            String ret = text.substring(0, lastIdx);
-            char last = text.charAt(lastIdx);
-            return last == '\n' && ret.charAt(lastIdx - 1) == '\r' ? ret.substring(0, lastIdx - 1) : ret;
+    private List<Template.Token> getTagTokens(@NotNull String text) {
+        final Template template = groupTemplates.get(text);
+        if (template != null) {
+            return template.hasTags() ? template.getTagTokens() : List.of();
         }
+        return text.contains(TAG_START) ? Template.tokenizeTags(text) : List.of();
     }
 
     @NotNull
     public String formatVelocitabPlaceholders(@NotNull String text, @NotNull TabPlayer player, @Nullable TabPlayer viewer) {
-        final Matcher matcher = VELOCITAB_PLACEHOLDERS.matcher(text);
-        if (!matcher.find()) {
+        final List<Template.Token> tokens = getTagTokens(text);
+        if (tokens.stream().noneMatch(token -> token instanceof Template.Tag)) {
             return text;
         }
 
         final StringBuilder result = new StringBuilder(text.length());
-        int lastEnd = 0;
-
-        do {
-            String placeholder = matcher.group();
-            String cleanedPlaceholder = placeholder.substring(1, placeholder.length() - 1);
+        for (Template.Token token : tokens) {
+            if (token instanceof Template.Literal literal) {
+                result.append(literal.text());
+                continue;
+            }
 
+            final Template.Tag tag = (Template.Tag) token;
             String replacement;
             try {
-                replacement = conditionManager.handleVelocitabPlaceholders(cleanedPlaceholder, player, viewer);
-                if (replacement.equals(cleanedPlaceholder)) {
-                    continue;
+                replacement = conditionManager.handleVelocitabPlaceholders(tag.content(), player, viewer);
+                if (replacement.equals(tag.content())) {
+                    replacement = tag.tag();
                 }
             } catch (Exception e) {
-                plugin.getLogger().warn("Failed to calculate condition for {}", cleanedPlaceholder, e);
-                replacement = placeholder;
+                plugin.getLogger().warn("Failed to calculate condition for {}", tag.content(), e);
+                replacement = tag.tag();
             }
 
-            result.append(text, lastEnd, matcher.start()).append(replacement);
-            lastEnd = matcher.end();
-        } while (matcher.find());
+            result.append(replacement);
+        }
 
-        result.append(text.substring(lastEnd));
         return result.toString();
     }
 
     @NotNull
     public String stripVelocitabRelPlaceholders(@NotNull String text) {
-        final Matcher matcher = VELOCITAB_REL_PLACEHOLDERS.matcher(text);
-        final StringBuilder result = new StringBuilder();
-        int lastEnd = 0;
-        while (matcher.find()) {
-            String placeholder = matcher.group();
-            String cleanedPlaceholder = placeholder.substring(1, placeholder.length() - 1);
-            try {
-                String replacement = "";
-                result.append(text, lastEnd, matcher.start()).append(replacement);
-                lastEnd = matcher.end();
-            } catch (Exception e) {
-                plugin.getLogger().warn("Failed to calculate condition for {}", cleanedPlaceholder, e);
+        final List<Template.Token> tokens = getTagTokens(text);
+        if (tokens.stream().noneMatch(token -> token instanceof Template.Tag tag && tag.relational())) {
+            return text;
+        }
+
+        return stripVelocitabRelPlaceholders(tokens, text.length());
+    }
+
+    @NotNull
+    private String stripVelocitabRelPlaceholders(@NotNull List<Template.Token> tokens, int length) {
+        final StringBuilder result = new StringBuilder(length);
+        for (Template.Token token : tokens) {
+            if (token instanceof Template.Literal literal) {
+                result.append(literal.text());
+            } else if (token instanceof Template.Tag tag && !tag.relational()) {
+                result.append(tag.tag());
             }
         }
-        result.append(text.substring(lastEnd));
         return result.toString();
     }
 
     private record PlaceholderResult(String preParsed, boolean isForBackend, String postParsed) {}
 
+    private record BackendRequest(String placeholder, String key, String toParse) {}
+
 }
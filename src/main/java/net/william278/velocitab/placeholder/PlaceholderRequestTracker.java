@@ -0,0 +1,189 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.velocitab.placeholder;
+
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tracks the state of the backend placeholder requests of each player.
+ * <p>
+ * At most one request per player and placeholder is in flight at a time. Placeholders which keep resolving to
+ * themselves (unknown to the backend) or timing out are backed off exponentially, so they are only requested again
+ * once their backoff expired.
+ */
+public class PlaceholderRequestTracker {
+
+    private static final long MIN_BACKOFF = 1000;
+    private static final long MAX_BACKOFF = 5 * 60 * 1000;
+    // Requests in flight for longer than this are considered lost
+    private static final long STALE_REQUEST = 30 * 1000;
+
+    private final Map<UUID, Map<String, RequestState>> states;
+
+    public PlaceholderRequestTracker() {
+        this.states = Maps.newConcurrentMap();
+    }
+
+    /**
+     * Mark a placeholder as requested, if it may be requested now
+     *
+     * @param uuid        The player to request the placeholder for
+     * @param placeholder The placeholder
+     * @return {@code true} if the placeholder should be requested, {@code false} if a request is still in flight
+     * or the placeholder is backed off
+     */
+    public boolean tryRequest(@NotNull UUID uuid, @NotNull String placeholder) {
+        final long now = System.currentTimeMillis();
+        final RequestState state = getState(uuid, placeholder);
+        synchronized (state) {
+            if (state.inFlight && now - state.requestedAt < STALE_REQUEST) {
+                return false;
+            }
+            if (state.inFlight) {
+                state.fail(Status.TIMED_OUT, now);
+            }
+            if (now < state.retryAt) {
+                return false;
+            }
+
+            state.inFlight = true;
+            state.requestedAt = now;
+            return true;
+        }
+    }
+
+    public void resolved(@NotNull UUID uuid, @NotNull String placeholder) {
+        final RequestState state = getState(uuid, placeholder);
+        synchronized (state) {
+            state.inFlight = false;
+            state.status = Status.RESOLVED;
+            state.failures = 0;
+            state.retryAt = 0;
+            state.lastDuration = System.currentTimeMillis() - state.requestedAt;
+        }
+    }
+
+    public void unresolved(@NotNull UUID uuid, @NotNull String placeholder) {
+        final RequestState state = getState(uuid, placeholder);
+        synchronized (state) {
+            state.fail(Status.UNRESOLVED, System.currentTimeMillis());
+        }
+    }
+
+    public void timedOut(@NotNull UUID uuid, @NotNull String placeholder) {
+        final RequestState state = getState(uuid, placeholder);
+        synchronized (state) {
+            state.fail(Status.TIMED_OUT, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Check whether the last request of a placeholder completed, successfully or not
+     *
+     * @param uuid        The player the placeholder was requested for
+     * @param placeholder The placeholder
+     * @return {@code true} if the placeholder was requested and no request is in flight
+     */
+    public boolean isSettled(@NotNull UUID uuid, @NotNull String placeholder) {
+        final Map<String, RequestState> playerStates = states.get(uuid);
+        final RequestState state = playerStates == null ? null : playerStates.get(placeholder);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            return !state.inFlight && state.status != Status.PENDING;
+        }
+    }
+
+    public void clear(@NotNull UUID uuid) {
+        states.remove(uuid);
+    }
+
+    public void clear() {
+        states.clear();
+    }
+
+    @NotNull
+    public Map<String, RequestSnapshot> getStates(@NotNull UUID uuid) {
+        final Map<String, RequestState> playerStates = states.get(uuid);
+        if (playerStates == null) {
+            return Map.of();
+        }
+
+        final long now = System.currentTimeMillis();
+        final Map<String, RequestSnapshot> snapshots = Maps.newTreeMap();
+        playerStates.forEach((placeholder, state) -> {
+            synchronized (state) {
+                snapshots.put(placeholder, new RequestSnapshot(state.status, state.inFlight, state.failures,
+                        Math.max(0, state.retryAt - now), state.lastDuration));
+            }
+        });
+        return snapshots;
+    }
+
+    @NotNull
+    private RequestState getState(@NotNull UUID uuid, @NotNull String placeholder) {
+        return states.computeIfAbsent(uuid, u -> Maps.newConcurrentMap())
+                .computeIfAbsent(placeholder, p -> new RequestState());
+    }
+
+    public enum Status {
+        PENDING,
+        RESOLVED,
+        UNRESOLVED,
+        TIMED_OUT
+    }
+
+    /**
+     * A snapshot of the state of a placeholder request
+     *
+     * @param status       The outcome of the last completed request
+     * @param inFlight     Whether a request is currently in flight
+     * @param failures     The number of consecutive failed requests
+     * @param backoff      The time in milliseconds until the placeholder may be requested again
+     * @param lastDuration How long the last successful request took, in milliseconds
+     */
+    public record RequestSnapshot(@NotNull Status status, boolean inFlight, int failures, long backoff, long lastDuration) {
+    }
+
+    private static final class RequestState {
+
+        private Status status = Status.PENDING;
+        private boolean inFlight;
+        private int failures;
+        private long requestedAt;
+        private long retryAt;
+        private long lastDuration = -1;
+
+        private void fail(@NotNull Status status, long now) {
+            this.inFlight = false;
+            this.status = status;
+            this.failures++;
+            final long backoff = MIN_BACKOFF << Math.min(failures - 1, 20);
+            this.retryAt = now + Math.min(backoff, MAX_BACKOFF);
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.velocitab.placeholder;
+
+import com.google.common.collect.Maps;
+import net.william278.velocitab.player.TabPlayer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Values of the built-in placeholders which are shared between players, computed once per tick.
+ * <p>
+ * Global, server and group scoped placeholders are computed by the first player rendering them in a tick, every
+ * other player in the same scope reads the stored value. Player scoped placeholders are never stored.
+ */
+public class PlaceholderSnapshot {
+
+    private static final long TICK_MILLIS = 50;
+
+    private volatile Tick current;
+
+    public PlaceholderSnapshot() {
+        this.current = new Tick(-1);
+    }
+
+    /**
+     * Get the value of a placeholder for a player, computing it if it is not part of the current snapshot
+     *
+     * @param token    The placeholder
+     * @param player   The player the placeholder is replaced for
+     * @param supplier Computes the value of the placeholder
+     * @return The value of the placeholder
+     */
+    @NotNull
+    public String get(@NotNull Template.PlaceholderToken token, @NotNull TabPlayer player,
+                      @NotNull Supplier<String> supplier) {
+        final Placeholder builtin = token.builtin();
+        final Placeholder.Scope scope = builtin == null ? Placeholder.Scope.PLAYER : builtin.getScope(token.parameter());
+        final String scopeKey = scope.getKey(player);
+        if (scopeKey == null) {
+            return supplier.get();
+        }
+
+        final String key = scope.ordinal() + ":" + scopeKey + ":" + token.targetPlaceholder();
+        return getTick().values.computeIfAbsent(key, k -> supplier.get());
+    }
+
+    /**
+     * Discard the current snapshot, e.g. after the groups were reloaded
+     */
+    public void clear() {
+        current = new Tick(-1);
+    }
+
+    @NotNull
+    private Tick getTick() {
+        final long tick = System.currentTimeMillis() / TICK_MILLIS;
+        Tick snapshot = current;
+        if (snapshot.tick != tick) {
+            // Racing threads may each create a snapshot, which at worst computes a value twice
+            snapshot = new Tick(tick);
+            current = snapshot;
+        }
+        return snapshot;
+    }
+
+    private static final class Tick {
+        private final long tick;
+        private final Map<String, String> values;
+
+        private Tick(long tick) {
+            this.tick = tick;
+            this.values = Maps.newConcurrentMap();
+        }
+    }
+
+}
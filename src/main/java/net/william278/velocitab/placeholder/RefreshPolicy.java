@@ -0,0 +1,125 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.velocitab.placeholder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * How often the value of a placeholder is fetched again.
+ * <ul>
+ *     <li>{@code static} - fetched once, then only again after a server switch or a LuckPerms recalculation</li>
+ *     <li>{@code ttl:<ms>} (or just {@code <ms>}) - fetched again once the value is older than the given time</li>
+ *     <li>{@code tick} - fetched on every placeholder update of the group</li>
+ * </ul>
+ */
+public record RefreshPolicy(@NotNull Type type, long ttl) {
+
+    public static final RefreshPolicy STATIC = new RefreshPolicy(Type.STATIC, 0);
+    public static final RefreshPolicy TICK = new RefreshPolicy(Type.TICK, 0);
+
+    // Defaults of backend placeholders which only change when LuckPerms recalculates the player's data
+    private static final Map<String, RefreshPolicy> BACKEND_DEFAULTS = Map.of(
+            "%luckperms_prefix%", STATIC,
+            "%luckperms_suffix%", STATIC,
+            "%luckperms_primary_group_name%", STATIC,
+            "%luckperms_meta_weight%", STATIC
+    );
+
+    @NotNull
+    public static RefreshPolicy ttl(long ttl) {
+        return ttl > 0 ? new RefreshPolicy(Type.TTL, ttl) : TICK;
+    }
+
+    /**
+     * Parse a refresh policy from its config representation
+     *
+     * @param text The text to parse, e.g. {@code static}, {@code tick} or {@code ttl:30000}
+     * @return The refresh policy, or empty if the text is not a valid policy
+     */
+    @NotNull
+    public static Optional<RefreshPolicy> parse(@NotNull String text) {
+        final String policy = text.trim().toLowerCase(Locale.ROOT);
+        switch (policy) {
+            case "static" -> {
+                return Optional.of(STATIC);
+            }
+            case "tick" -> {
+                return Optional.of(TICK);
+            }
+        }
+
+        final String ttl = policy.startsWith("ttl:") ? policy.substring(4).trim() : policy;
+        try {
+            return Optional.of(ttl(Long.parseLong(ttl)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Get the built-in refresh policy of a placeholder
+     *
+     * @param placeholder The placeholder, including its percent signs
+     * @param builtin     The built-in placeholder it refers to, if any
+     * @return The default refresh policy
+     */
+    @NotNull
+    public static RefreshPolicy getDefault(@NotNull String placeholder, @Nullable Placeholder builtin) {
+        if (builtin != null) {
+            return builtin.getRefreshPolicy();
+        }
+        return BACKEND_DEFAULTS.getOrDefault(placeholder.toLowerCase(Locale.ROOT), TICK);
+    }
+
+    /**
+     * Check whether a placeholder with this policy has to be fetched again
+     *
+     * @param lastRefresh The time the placeholder was last fetched at, or {@code null} if it never was
+     * @param now         The current time
+     * @return {@code true} if the placeholder should be fetched
+     */
+    public boolean isDue(@Nullable Long lastRefresh, long now) {
+        if (lastRefresh == null) {
+            return true;
+        }
+        return switch (type) {
+            case STATIC -> false;
+            case TTL -> now - lastRefresh >= ttl;
+            case TICK -> true;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.TTL ? "ttl:" + ttl : type.name().toLowerCase(Locale.ROOT);
+    }
+
+    public enum Type {
+        STATIC,
+        TTL,
+        TICK
+    }
+
+}
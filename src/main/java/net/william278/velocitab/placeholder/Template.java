@@ -0,0 +1,267 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.velocitab.placeholder;
+
+import com.google.common.collect.Lists;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+
+/**
+ * A text compiled into the placeholders and Velocitab tags it contains, so it can be rendered by walking its
+ * tokens instead of re-scanning it with regular expressions.
+ * <p>
+ * Placeholders and tags are tokenized independently, the same way each rendering stage used to scan the whole text:
+ * {@code %...%} placeholders pair up the {@code %} characters from left to right, and tags follow the
+ * {@code <velocitab...>} syntax, which may contain nested MiniMessage tags that don't start with {@code v}.
+ * <p>
+ * Placeholders in the condition of a {@code velocitab_condition} tag are marked, so they are left in the text and
+ * bound by the compiled {@link Condition} instead of changing its text with every value.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Template {
+
+    private static final String TARGET_PREFIX = "%target_";
+    private static final String TAG_START = "<velocitab";
+    private static final String REL_TAG_START = "<velocitab_rel";
+    private static final List<String> CONDITION_TAGS = List.of("<velocitab_condition:", "<velocitab_rel_condition:");
+
+    private final String text;
+    private final List<Token> placeholderTokens;
+    private final List<Token> tagTokens;
+    private final List<String> placeholders;
+    private final boolean relational;
+
+    @NotNull
+    public static Template compile(@NotNull String text) {
+        final List<int[]> conditions = Lists.newArrayList();
+        final List<Token> tagTokens = tokenizeTags(text, conditions);
+        final List<Token> placeholderTokens = tokenizePlaceholders(text, conditions);
+        final List<String> placeholders = placeholderTokens.stream()
+                .filter(token -> token instanceof PlaceholderToken)
+                .map(token -> ((PlaceholderToken) token).targetPlaceholder())
+                .toList();
+        final boolean relational = tagTokens.stream().anyMatch(token -> token instanceof Tag tag && tag.relational());
+        return new Template(text, placeholderTokens, tagTokens, placeholders, relational);
+    }
+
+    public boolean hasPlaceholders() {
+        return !placeholders.isEmpty();
+    }
+
+    public boolean hasTags() {
+        return tagTokens.stream().anyMatch(token -> token instanceof Tag);
+    }
+
+    @NotNull
+    private static List<Token> tokenizePlaceholders(@NotNull String text, @NotNull List<int[]> conditions) {
+        final List<Token> tokens = Lists.newArrayList();
+        int literalStart = 0;
+        int start = text.indexOf('%');
+        while (start != -1) {
+            final int end = text.indexOf('%', start + 1);
+            if (end == -1) {
+                break;
+            }
+
+            if (start > literalStart) {
+                tokens.add(Literal.of(text.substring(literalStart, start)));
+            }
+            tokens.add(PlaceholderToken.of(text.substring(start, end + 1), isInCondition(conditions, start)));
+            literalStart = end + 1;
+            start = text.indexOf('%', literalStart);
+        }
+
+        if (literalStart < text.length()) {
+            tokens.add(Literal.of(text.substring(literalStart)));
+        }
+        return List.copyOf(tokens);
+    }
+
+    private static boolean isInCondition(@NotNull List<int[]> conditions, int index) {
+        for (int[] condition : conditions) {
+            if (index >= condition[0] && index < condition[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tokenize the tags of a rendered text, without compiling it into a template
+     *
+     * @param text The text
+     * @return The tag tokens
+     */
+    @NotNull
+    public static List<Token> tokenizeTags(@NotNull String text) {
+        return tokenizeTags(text, Lists.newArrayList());
+    }
+
+    // Tokenizes the tags, adding the start and end of the condition of each condition tag to the list
+    @NotNull
+    private static List<Token> tokenizeTags(@NotNull String text, @NotNull List<int[]> conditions) {
+        final List<Token> tokens = Lists.newArrayList();
+        int literalStart = 0;
+        int start = text.indexOf(TAG_START);
+        while (start != -1) {
+            final int end = findTagEnd(text, start + TAG_START.length());
+            if (end == -1) {
+                start = text.indexOf(TAG_START, start + 1);
+                continue;
+            }
+
+            if (start > literalStart) {
+                tokens.add(Literal.of(text.substring(literalStart, start)));
+            }
+            final String tag = text.substring(start, end + 1);
+            for (String conditionTag : CONDITION_TAGS) {
+                if (tag.startsWith(conditionTag)) {
+                    final int conditionStart = start + conditionTag.length();
+                    final int separator = text.indexOf(':', conditionStart);
+                    conditions.add(new int[]{conditionStart, separator == -1 || separator > end ? end : separator});
+                }
+            }
+            tokens.add(new Tag(tag, tag.substring(1, tag.length() - 1), tag.startsWith(REL_TAG_START)));
+            literalStart = end + 1;
+            start = text.indexOf(TAG_START, literalStart);
+        }
+
+        if (literalStart < text.length()) {
+            tokens.add(Literal.of(text.substring(literalStart)));
+        }
+        return List.copyOf(tokens);
+    }
+
+    // Finds the closing '>' of a tag, allowing nested <...> tags which don't start with 'v', or -1 if it's invalid
+    private static int findTagEnd(@NotNull String text, int index) {
+        while (index < text.length()) {
+            final char c = text.charAt(index);
+            if (c == '>') {
+                return index;
+            }
+            if (c != '<') {
+                index++;
+                continue;
+            }
+
+            if (index + 1 >= text.length() || text.charAt(index + 1) == 'v') {
+                return -1;
+            }
+            index++;
+            while (index < text.length() && text.charAt(index) != '<' && text.charAt(index) != '>') {
+                index++;
+            }
+            if (index >= text.length() || text.charAt(index) != '>') {
+                return -1;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    public sealed interface Token permits Literal, PlaceholderToken, Tag {
+    }
+
+    /**
+     * Plain text
+     *
+     * @param text       The text
+     * @param targetText The text with {@code %target_} replaced by {@code %}
+     */
+    public record Literal(@NotNull String text, @NotNull String targetText) implements Token {
+
+        @NotNull
+        private static Literal of(@NotNull String text) {
+            return new Literal(text, text.replace(TARGET_PREFIX, "%"));
+        }
+
+    }
+
+    /**
+     * A {@code %...%} placeholder
+     *
+     * @param placeholder       The placeholder, as written in the text
+     * @param targetPlaceholder The placeholder with {@code %target_} replaced by {@code %}
+     * @param builtin           The Velocitab placeholder it resolves to, if any
+     * @param parameter         The parameter of a parameterised Velocitab placeholder
+     * @param condition         Whether it's in the condition of a {@code velocitab_condition} tag
+     */
+    public record PlaceholderToken(@NotNull String placeholder, @NotNull String targetPlaceholder,
+                                   @Nullable Placeholder builtin, @Nullable String parameter,
+                                   boolean condition) implements Token {
+
+        @NotNull
+        private static PlaceholderToken of(@NotNull String placeholder, boolean condition) {
+            final String targetPlaceholder = placeholder.replace(TARGET_PREFIX, "%");
+            final Optional<Placeholder> builtin = Placeholder.byName(targetPlaceholder);
+            if (builtin.isPresent()) {
+                return new PlaceholderToken(placeholder, targetPlaceholder, builtin.get(), null, condition);
+            }
+
+            for (Placeholder type : Placeholder.getPARAMETERISED()) {
+                final Matcher matcher = type.getPattern().matcher(targetPlaceholder);
+                if (matcher.find()) {
+                    final String parameter = chop(matcher.group().replace("%" + type.name().toLowerCase(), "")
+                            .replaceFirst("_", ""));
+                    return new PlaceholderToken(placeholder, targetPlaceholder, type, parameter, condition);
+                }
+            }
+
+            return new PlaceholderToken(placeholder, targetPlaceholder, null, null, condition);
+        }
+
+        public boolean isTarget() {
+            return placeholder.startsWith(TARGET_PREFIX);
+        }
+
+        @NotNull
+        private static String chop(@NotNull String text) {
+            int strLen = text.length();
+            if (strLen < 2) {
+                return "";
+            } else {
+                int lastIdx = strLen - 1;
+                String ret = text.substring(0, lastIdx);
+                char last = text.charAt(lastIdx);
+                return last == '\n' && ret.charAt(lastIdx - 1) == '\r' ? ret.substring(0, lastIdx - 1) : ret;
+            }
+        }
+
+    }
+
+    /**
+     * A {@code <velocitab...>} tag
+     *
+     * @param tag        The tag, as written in the text
+     * @param content    The tag without its angle brackets
+     * @param relational Whether it's a {@code <velocitab_rel...>} tag
+     */
+    public record Tag(@NotNull String tag, @NotNull String content, boolean relational) implements Token {
+    }
+
+}
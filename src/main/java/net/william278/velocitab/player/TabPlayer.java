@@ -21,6 +21,7 @@ package net.william278.velocitab.player;
 
 import com.google.common.collect.Maps;
 import com.velocitypowered.api.proxy.Player;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -36,6 +37,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Getter
 @ToString
@@ -43,7 +45,6 @@ public final class TabPlayer implements Comparable<TabPlayer> {
 
     private final Velocitab plugin;
     private final Player player;
-    @Setter
     private Role role;
     private int headerIndex = 0;
     private int footerIndex = 0;
@@ -56,21 +57,23 @@ public final class TabPlayer implements Comparable<TabPlayer> {
     @Setter
     private int listOrder = -1;
     @Nullable
-    @Setter
     private UpdateTeamsPacket.TeamColor teamColor;
     @Nullable
-    @Setter
     private String customName;
     @Nullable
     @Setter
     private String lastServer;
     @NotNull
-    @Setter
     private Group group;
     @Setter
     private boolean loaded;
-    @Setter
     private boolean relationalPermission;
+    // Whether an input of this player's display name changed since it was last rendered
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean dirty;
+    // The latency last sent to viewers of this player, or -1 if it hasn't been sent yet
+    @Getter(AccessLevel.NONE)
+    private int lastSentLatency = -1;
 
     public TabPlayer(@NotNull Velocitab plugin, @NotNull Player player,
                      @NotNull Role role, @NotNull Group group, boolean relationalPermission) {
@@ -81,6 +84,101 @@ public final class TabPlayer implements Comparable<TabPlayer> {
         this.relationalDisplayNames = Maps.newConcurrentMap();
         this.relationalNametags = Maps.newConcurrentMap();
         this.relationalPermission = relationalPermission;
+        this.dirty = new AtomicBoolean(true);
+    }
+
+    public void setRole(@NotNull Role role) {
+        this.role = role;
+        markDirty();
+    }
+
+    public void setGroup(@NotNull Group group) {
+        this.group = group;
+        markDirty();
+    }
+
+    public void setTeamColor(@Nullable UpdateTeamsPacket.TeamColor teamColor) {
+        this.teamColor = teamColor;
+        markDirty();
+    }
+
+    public void setCustomName(@Nullable String customName) {
+        this.customName = customName;
+        markDirty();
+    }
+
+    public void setRelationalPermission(boolean relationalPermission) {
+        this.relationalPermission = relationalPermission;
+        markDirty();
+    }
+
+    /**
+     * Flag this player's display name for re-rendering on the next format update
+     */
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * Check whether this player's display name needs re-rendering
+     *
+     * @return {@code true} if an input of the display name changed since it was last rendered
+     */
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    /**
+     * Check and clear the dirty flag of this player's display name
+     *
+     * @return {@code true} if the display name needed re-rendering
+     */
+    public boolean consumeDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    /**
+     * Check whether this player's latency should be re-sent to their viewers, and if so record it as sent.
+     * <p>
+     * Clients only render latency as signal bars, so unless {@code exact} is set an update is only needed once the
+     * latency moves into another bar, and at least {@code hysteresis} milliseconds past the bar's boundary.
+     *
+     * @param latency    The current latency of the player
+     * @param exact      Whether every change should be sent
+     * @param hysteresis The margin, in milliseconds, the latency has to move past a bar boundary by
+     * @return {@code true} if the latency should be sent
+     */
+    public boolean updateLatency(int latency, boolean exact, int hysteresis) {
+        final int last = lastSentLatency;
+        final boolean changed;
+        if (last < 0) {
+            changed = true;
+        } else if (exact) {
+            changed = latency != last;
+        } else if (latency > last) {
+            changed = getLatencyBar(latency - hysteresis) > getLatencyBar(last);
+        } else {
+            changed = getLatencyBar(latency + hysteresis) < getLatencyBar(last);
+        }
+
+        if (changed) {
+            lastSentLatency = latency;
+        }
+        return changed;
+    }
+
+    // The signal bar bucket the vanilla client renders a latency as
+    private static int getLatencyBar(int latency) {
+        if (latency < 150) {
+            return 0;
+        } else if (latency < 300) {
+            return 1;
+        } else if (latency < 600) {
+            return 2;
+        } else if (latency < 1000) {
+            return 3;
+        }
+        return 4;
     }
 
     @NotNull
@@ -138,13 +236,11 @@ public final class TabPlayer implements Comparable<TabPlayer> {
         }
 
         // Allow API consumers to transform header/footer before sending to the client.
-        final Component[] result = plugin.getEventDispatcher().fireHeaderFooterEvent(this, header, footer);
-        final Component finalHeader = result[0];
-        final Component finalFooter = result[1];
-
-        lastHeader = finalHeader;
-        lastFooter = finalFooter;
-        player.sendPlayerListHeaderAndFooter(finalHeader, finalFooter);
+        plugin.getEventDispatcher().fireHeaderFooterEvent(this, header, footer, (finalHeader, finalFooter) -> {
+            lastHeader = finalHeader;
+            lastFooter = finalFooter;
+            tabList.getComponentHolders().sendHeaderAndFooter(player, finalHeader, finalFooter);
+        });
     }
 
     public void incrementIndexes() {
@@ -198,6 +294,7 @@ public final class TabPlayer implements Comparable<TabPlayer> {
         lastFooter = null;
         role = Role.DEFAULT_ROLE;
         teamName = null;
+        markDirty();
     }
 
     /**
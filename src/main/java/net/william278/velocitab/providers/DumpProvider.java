@@ -19,6 +19,7 @@
 
 package net.william278.velocitab.providers;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Lists;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.proxy.Player;
@@ -31,6 +32,8 @@ import net.william278.toilet.velocity.VelocityToilet;
 import net.william278.velocitab.Velocitab;
 import net.william278.velocitab.config.Group;
 import net.william278.velocitab.hook.Hook;
+import net.william278.velocitab.tab.QualityController;
+import net.william278.velocitab.tab.TaskManager;
 import net.william278.velocitab.util.DebugSystem;
 import org.jetbrains.annotations.Blocking;
 import org.jetbrains.annotations.NotNull;
@@ -168,6 +171,11 @@ public interface DumpProvider {
                         Map.entry("RemoveNameTags", Boolean.toString(getPlugin().getSettings().isRemoveNametags())),
                         Map.entry("DisableHeaderFooterIfEmpty", Boolean.toString(getPlugin().getSettings().isDisableHeaderFooterIfEmpty())),
                         Map.entry("Formatter", getPlugin().getSettings().getFormatter().name()),
+                        Map.entry("FormatterCache", getFormatterCacheStatus()),
+                        Map.entry("TaskManagerThreads", getTaskManagerStatus()),
+                        Map.entry("TaskManagerTicks", getTickStatus()),
+                        Map.entry("QualityLevel", getQualityStatus()),
+                        Map.entry("JoinLatency", getPlugin().getTabList().getJoinLatencies().getSummary().toString()),
                         Map.entry("FallbackGroupEnabled", Boolean.toString(getPlugin().getSettings().isFallbackEnabled())),
                         Map.entry("FallbackGroup", getPlugin().getSettings().getFallbackGroup()),
                         Map.entry("PapiProxyBridge", Boolean.toString(getPlugin().getSettings().isEnablePapiHook())),
@@ -182,6 +190,31 @@ public interface DumpProvider {
         );
     }
 
+    @NotNull
+    private String getFormatterCacheStatus() {
+        final CacheStats stats = getPlugin().getFormatter().getCacheStats();
+        return "%d hits, %d misses (%.1f%% hit rate)".formatted(stats.hitCount(), stats.missCount(), stats.hitRate() * 100);
+    }
+
+    @NotNull
+    private String getTaskManagerStatus() {
+        return getPlugin().getTabList().getTaskManager().getShardStatus().stream()
+                .map(shard -> "#%d: %d queued, %dms lag".formatted(shard.index(), shard.queueDepth(), shard.lag()))
+                .collect(Collectors.joining(", "));
+    }
+
+    @NotNull
+    private String getTickStatus() {
+        final TaskManager.TickStatus ticks = getPlugin().getTabList().getTaskManager().getTickStatus();
+        return "%d run, %d skipped, %d missed".formatted(ticks.runs(), ticks.skipped(), ticks.missed());
+    }
+
+    @NotNull
+    private String getQualityStatus() {
+        final QualityController controller = getPlugin().getTabList().getTaskManager().getQualityController();
+        return controller.isEnabled() ? "%d/%d".formatted(controller.getLevel(), QualityController.MAX_LEVEL) : "Disabled";
+    }
+
     @NotNull
     private PluginStatus.ListStatusBlock getHookStatus() {
         return new PluginStatus.ListStatusBlock(
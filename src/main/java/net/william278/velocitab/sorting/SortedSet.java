@@ -19,57 +19,185 @@
 
 package net.william278.velocitab.sorting;
 
-import com.google.common.collect.Maps;
-import lombok.ToString;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
-@ToString
+/**
+ * A sorted set of team names which can look up the position of a team in O(log n).
+ * <p>
+ * Backed by a treap where each node tracks the size of its subtree, so adding or removing a team doesn't rewrite
+ * the positions of the others. Both operations return the position they happened at: every team at or after it
+ * has shifted by one.
+ */
 public class SortedSet {
 
-    private final ConcurrentSkipListSet<String> sortedTeams;
-    private final Map<String, Integer> positionMap;
+    private final Comparator<String> comparator;
+    @Nullable
+    private Node root;
 
     public SortedSet(@NotNull Comparator<String> comparator) {
-        sortedTeams = new ConcurrentSkipListSet<>(comparator);
-        positionMap = Maps.newConcurrentMap();
+        this.comparator = comparator;
     }
 
-    public boolean addTeam(@NotNull String teamName) {
-        if (!sortedTeams.add(teamName)) {
-            return false;
+    /**
+     * Add a team to the set
+     *
+     * @param teamName The team to add
+     * @return The position of the added team, or {@code -1} if it was already present
+     */
+    public synchronized int addTeam(@NotNull String teamName) {
+        if (getPosition(teamName) != -1) {
+            return -1;
         }
-        updatePositions(teamName);
-        return true;
+
+        final Node[] split = split(root, teamName);
+        final int position = size(split[0]);
+        root = merge(merge(split[0], new Node(teamName)), split[1]);
+        return position;
     }
 
-    public boolean removeTeam(@NotNull String teamName) {
-        if (!sortedTeams.remove(teamName)) {
-            return false;
+    /**
+     * Remove a team from the set
+     *
+     * @param teamName The team to remove
+     * @return The position the team had, or {@code -1} if it wasn't present
+     */
+    public synchronized int removeTeam(@NotNull String teamName) {
+        final int position = getPosition(teamName);
+        if (position == -1) {
+            return -1;
         }
-        updatePositions(null);
-        return true;
+
+        root = remove(root, teamName);
+        return position;
     }
 
-    private void updatePositions(@Nullable String newTeam) {
-        if (newTeam != null) {
-            int newPosition = sortedTeams.headSet(newTeam).size();
-            positionMap.put(newTeam, newPosition);
-            sortedTeams.tailSet(newTeam).forEach(team -> positionMap.put(team, sortedTeams.headSet(team).size()));
-        } else {
-            int index = 0;
-            positionMap.clear();
-            for (String team : sortedTeams) {
-                positionMap.put(team, index++);
+    public synchronized int getPosition(@NotNull String teamName) {
+        Node node = root;
+        int position = 0;
+        while (node != null) {
+            final int compare = comparator.compare(teamName, node.team);
+            if (compare < 0) {
+                node = node.left;
+            } else if (compare > 0) {
+                position += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return position + size(node.left);
             }
         }
+        return -1;
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    // Splits a subtree into the teams sorted before the given team and the remaining ones
+    @NotNull
+    private Node[] split(@Nullable Node node, @NotNull String teamName) {
+        if (node == null) {
+            return new Node[2];
+        }
+
+        if (comparator.compare(node.team, teamName) < 0) {
+            final Node[] split = split(node.right, teamName);
+            node.right = split[0];
+            node.update();
+            return new Node[]{node, split[1]};
+        }
+
+        final Node[] split = split(node.left, teamName);
+        node.left = split[1];
+        node.update();
+        return new Node[]{split[0], node};
+    }
+
+    // Merges two subtrees where every team of the first one is sorted before the teams of the second one
+    @Nullable
+    private Node merge(@Nullable Node first, @Nullable Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            first.update();
+            return first;
+        }
+
+        second.left = merge(first, second.left);
+        second.update();
+        return second;
+    }
+
+    @Nullable
+    private Node remove(@Nullable Node node, @NotNull String teamName) {
+        if (node == null) {
+            return null;
+        }
+
+        final int compare = comparator.compare(teamName, node.team);
+        if (compare == 0) {
+            return merge(node.left, node.right);
+        }
+
+        if (compare < 0) {
+            node.left = remove(node.left, teamName);
+        } else {
+            node.right = remove(node.right, teamName);
+        }
+        node.update();
+        return node;
     }
 
-    public int getPosition(@NotNull String teamName) {
-        return positionMap.getOrDefault(teamName, -1);
+    private static int size(@Nullable Node node) {
+        return node == null ? 0 : node.size;
     }
+
+    private void collect(@Nullable Node node, @NotNull List<String> teams) {
+        if (node == null) {
+            return;
+        }
+
+        collect(node.left, teams);
+        teams.add(node.team);
+        collect(node.right, teams);
+    }
+
+    @Override
+    public synchronized String toString() {
+        final List<String> teams = new ArrayList<>(size(root));
+        collect(root, teams);
+        return "SortedSet(sortedTeams=" + teams + ")";
+    }
+
+    private static final class Node {
+
+        private final String team;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size;
+
+        private Node(@NotNull String team) {
+            this.team = team;
+            this.priority = ThreadLocalRandom.current().nextInt();
+            this.size = 1;
+        }
+
+        private void update() {
+            size = 1 + SortedSet.size(left) + SortedSet.size(right);
+        }
+
+    }
+
 }
@@ -0,0 +1,105 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.william278.velocitab.tab;
+
+import com.google.common.collect.Maps;
+import net.william278.velocitab.Velocitab;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.event.Level;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces bursts of requests for the same key into a single run of an action.
+ * <p>
+ * The action runs once no request for the key was made for the quiet period, or once the first request of the burst
+ * is older than the maximum delay, so that a steady stream of requests can't postpone it forever.
+ *
+ * @param <K> The type of the keys
+ */
+public class Debouncer<K> {
+
+    private final Velocitab plugin;
+    private final TaskManager taskManager;
+    private final long quietPeriod;
+    private final long maxDelay;
+    private final Consumer<K> action;
+    private final Map<K, Burst> bursts;
+
+    public Debouncer(@NotNull Velocitab plugin, @NotNull TaskManager taskManager, long quietPeriod, long maxDelay,
+                     @NotNull Consumer<K> action) {
+        this.plugin = plugin;
+        this.taskManager = taskManager;
+        this.quietPeriod = quietPeriod;
+        this.maxDelay = maxDelay;
+        this.action = action;
+        this.bursts = Maps.newConcurrentMap();
+    }
+
+    /**
+     * Request the action to run for a key
+     *
+     * @param key The key
+     */
+    public void request(@NotNull K key) {
+        final long now = System.currentTimeMillis();
+        final Burst created = new Burst(now);
+        final Burst burst = bursts.merge(key, created, (current, next) -> {
+            current.last = now;
+            return current;
+        });
+        if (burst == created) {
+            taskManager.runDelayed(() -> settle(key), quietPeriod, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void settle(@NotNull K key) {
+        final Burst burst = bursts.get(key);
+        if (burst == null) {
+            return;
+        }
+
+        final long wait = Math.min(burst.last + quietPeriod, burst.first + maxDelay) - System.currentTimeMillis();
+        if (wait > 0) {
+            taskManager.runDelayed(() -> settle(key), wait, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        // Requests made from now on start a new burst
+        bursts.remove(key, burst);
+        try {
+            action.accept(key);
+        } catch (Throwable e) {
+            plugin.log(Level.ERROR, "Failed to run debounced update", e);
+        }
+    }
+
+    private static final class Burst {
+        private final long first;
+        private volatile long last;
+
+        private Burst(long first) {
+            this.first = first;
+            this.last = first;
+        }
+    }
+
+}
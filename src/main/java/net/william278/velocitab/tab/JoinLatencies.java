@@ -0,0 +1,86 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.william278.velocitab.tab;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Records how long the most recent joins took from the player connecting to a server until their TAB list was sent.
+ */
+public class JoinLatencies {
+
+    private static final int SAMPLES = 1024;
+
+    private final long[] latencies;
+    private long joins;
+    private long deadlines;
+
+    public JoinLatencies() {
+        this.latencies = new long[SAMPLES];
+    }
+
+    /**
+     * Record a join
+     *
+     * @param latency  The time the join took, in milliseconds
+     * @param deadline Whether the join went ahead because the deadline passed, rather than all placeholders resolving
+     */
+    public synchronized void record(long latency, boolean deadline) {
+        latencies[(int) (joins % SAMPLES)] = latency;
+        joins++;
+        if (deadline) {
+            deadlines++;
+        }
+    }
+
+    /**
+     * Get a summary of the recorded joins
+     *
+     * @return The 50th, 90th and 99th percentile of the latest joins, and how many joins hit the deadline
+     */
+    @NotNull
+    public synchronized Summary getSummary() {
+        final int count = (int) Math.min(joins, SAMPLES);
+        if (count == 0) {
+            return new Summary(0, 0, 0, 0, 0);
+        }
+
+        final long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return new Summary(joins, deadlines, percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99));
+    }
+
+    // Nearest-rank percentile of sorted samples
+    private static long percentile(long @NotNull [] sorted, double percentile) {
+        final int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    public record Summary(long joins, long deadlines, long p50, long p90, long p99) {
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "p50 %dms, p90 %dms, p99 %dms (%d joins, %d hit the deadline)".formatted(p50, p90, p99, joins, deadlines);
+        }
+    }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.velocitab.tab;
+
+import com.google.common.collect.Maps;
+import com.velocitypowered.api.proxy.Player;
+import net.william278.velocitab.player.TabPlayer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Live index of the loaded {@link TabPlayer}s, keyed by group name and by backend server name,
+ * and of the {@link Player}s connected to each backend server, whether they are loaded or not.
+ * <p>
+ * Lookups return immutable snapshots which are only rebuilt after the membership of a group or server changed,
+ * so hot paths can iterate them without filtering or copying the whole player map.
+ */
+public class PlayerIndex {
+
+    private final Map<UUID, IndexedPlayer> indexed;
+    private final Map<String, Bucket<TabPlayer>> groups;
+    private final Map<String, Bucket<TabPlayer>> servers;
+    private final Bucket<TabPlayer> all;
+    private final Map<UUID, String> connectedServers;
+    private final Map<String, Bucket<Player>> connected;
+
+    public PlayerIndex() {
+        this.indexed = Maps.newConcurrentMap();
+        this.groups = Maps.newConcurrentMap();
+        this.servers = Maps.newConcurrentMap();
+        this.all = new Bucket<>();
+        this.connectedServers = Maps.newConcurrentMap();
+        this.connected = Maps.newConcurrentMap();
+    }
+
+    /**
+     * Add a player to the index, or move them to their current group and server if already indexed
+     *
+     * @param player The player to index
+     */
+    public synchronized void add(@NotNull TabPlayer player) {
+        final UUID uuid = player.getPlayer().getUniqueId();
+        final String group = player.getGroup().name();
+        final String server = player.getServerName();
+        final IndexedPlayer previous = indexed.get(uuid);
+        if (previous != null) {
+            if (previous.player() == player && previous.group().equals(group) && previous.server().equals(server)) {
+                return;
+            }
+            remove(uuid);
+        }
+
+        groups.computeIfAbsent(group, g -> new Bucket<>()).add(uuid, player);
+        servers.computeIfAbsent(server, s -> new Bucket<>()).add(uuid, player);
+        all.add(uuid, player);
+        indexed.put(uuid, new IndexedPlayer(player, group, server));
+    }
+
+    /**
+     * Remove a player from the index
+     *
+     * @param uuid The UUID of the player to remove
+     */
+    public synchronized void remove(@NotNull UUID uuid) {
+        final IndexedPlayer previous = indexed.remove(uuid);
+        if (previous == null) {
+            return;
+        }
+
+        removeFrom(groups, previous.group(), uuid);
+        removeFrom(servers, previous.server(), uuid);
+        all.remove(uuid);
+    }
+
+    /**
+     * Record the backend server a player is connected to, moving them out of their previous server
+     *
+     * @param player The connected player
+     * @param server The name of the server they are connected to
+     */
+    public synchronized void connect(@NotNull Player player, @NotNull String server) {
+        final UUID uuid = player.getUniqueId();
+        final String previous = connectedServers.put(uuid, server);
+        if (previous != null && !previous.equals(server)) {
+            removeFrom(connected, previous, uuid);
+        }
+        connected.computeIfAbsent(server, s -> new Bucket<>()).add(uuid, player);
+    }
+
+    /**
+     * Remove a player from the connected players of their server
+     *
+     * @param uuid The UUID of the disconnected player
+     */
+    public synchronized void disconnect(@NotNull UUID uuid) {
+        final String previous = connectedServers.remove(uuid);
+        if (previous != null) {
+            removeFrom(connected, previous, uuid);
+        }
+    }
+
+    private <T> void removeFrom(@NotNull Map<String, Bucket<T>> buckets, @NotNull String key, @NotNull UUID uuid) {
+        final Bucket<T> bucket = buckets.get(key);
+        if (bucket == null) {
+            return;
+        }
+
+        bucket.remove(uuid);
+        if (bucket.isEmpty()) {
+            buckets.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        indexed.clear();
+        groups.clear();
+        servers.clear();
+        all.clear();
+        connectedServers.clear();
+        connected.clear();
+    }
+
+    @NotNull
+    public List<TabPlayer> getGroupPlayers(@NotNull String group) {
+        final Bucket<TabPlayer> bucket = groups.get(group);
+        return bucket == null ? List.of() : bucket.getMembers();
+    }
+
+    @NotNull
+    public List<TabPlayer> getServerPlayers(@NotNull String server) {
+        final Bucket<TabPlayer> bucket = servers.get(server);
+        return bucket == null ? List.of() : bucket.getMembers();
+    }
+
+    /**
+     * Get the players connected to a backend server, including players who are not loaded yet
+     *
+     * @param server The name of the server
+     * @return An immutable snapshot of the connected players
+     */
+    @NotNull
+    public List<Player> getConnectedPlayers(@NotNull String server) {
+        final Bucket<Player> bucket = connected.get(server);
+        return bucket == null ? List.of() : bucket.getMembers();
+    }
+
+    @NotNull
+    public List<TabPlayer> getAllPlayers() {
+        return all.getMembers();
+    }
+
+    public int getGroupSize(@NotNull String group) {
+        final Bucket<TabPlayer> bucket = groups.get(group);
+        return bucket == null ? 0 : bucket.size();
+    }
+
+    private record IndexedPlayer(@NotNull TabPlayer player, @NotNull String group, @NotNull String server) {
+    }
+
+    /**
+     * A set of players with lazily rebuilt, immutable snapshots
+     */
+    private static final class Bucket<T> {
+
+        private final Map<UUID, T> members = Maps.newLinkedHashMap();
+        private volatile List<T> snapshot;
+
+        private synchronized void add(@NotNull UUID uuid, @NotNull T player) {
+            members.put(uuid, player);
+            invalidate();
+        }
+
+        private synchronized void remove(@NotNull UUID uuid) {
+            if (members.remove(uuid) != null) {
+                invalidate();
+            }
+        }
+
+        private synchronized void clear() {
+            members.clear();
+            invalidate();
+        }
+
+        private synchronized boolean isEmpty() {
+            return members.isEmpty();
+        }
+
+        private synchronized int size() {
+            return members.size();
+        }
+
+        private void invalidate() {
+            snapshot = null;
+        }
+
+        @NotNull
+        private List<T> getMembers() {
+            final List<T> current = snapshot;
+            if (current != null) {
+                return current;
+            }
+
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = List.copyOf(members.values());
+                }
+                return snapshot;
+            }
+        }
+
+    }
+
+}
@@ -27,7 +27,6 @@ import com.velocitypowered.api.proxy.player.TabList;
 import com.velocitypowered.api.proxy.player.TabListEntry;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import com.velocitypowered.api.proxy.server.ServerInfo;
-import com.velocitypowered.api.scheduler.ScheduledTask;
 import com.velocitypowered.api.util.ServerLink;
 import com.velocitypowered.proxy.tablist.KeyedVelocityTabList;
 import com.velocitypowered.proxy.tablist.VelocityTabList;
@@ -37,12 +36,16 @@ import lombok.Getter;
 import net.kyori.adventure.text.Component;
 import net.william278.velocitab.Velocitab;
 import net.william278.velocitab.api.PlayerAddedToTabEvent;
+import net.william278.velocitab.config.Formatter;
 import net.william278.velocitab.config.Group;
 import net.william278.velocitab.config.ServerUrl;
+import net.william278.velocitab.packet.ComponentHolderCache;
 import net.william278.velocitab.packet.ScoreboardManager;
+import net.william278.velocitab.placeholder.ConditionManager;
 import net.william278.velocitab.player.Role;
 import net.william278.velocitab.player.TabPlayer;
 import net.william278.velocitab.util.DebugSystem;
+import net.william278.velocitab.util.MiniMessageUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.event.Level;
@@ -58,6 +61,10 @@ import java.util.stream.Collectors;
 public class PlayerTabList {
 
     public static final String RELATIONAL_PERMISSION = "velocitab.relational";
+    private static final long JOIN_POLL_RATE = 50;
+    // Header/footer refreshes after joins and quits wait for the burst to settle for this long, but at most a second
+    private static final long HEADER_FOOTER_QUIET_PERIOD = 100;
+    private static final long HEADER_FOOTER_MAX_DELAY = 1000;
 
     private final Velocitab plugin;
     @Getter
@@ -66,14 +73,31 @@ public class PlayerTabList {
     private final Map<UUID, TabPlayer> players;
     @Getter(value = AccessLevel.PUBLIC)
     private final TaskManager taskManager;
+    @Getter(value = AccessLevel.PUBLIC)
+    private final PlayerIndex playerIndex;
+    @Getter(value = AccessLevel.PUBLIC)
+    private final ComponentHolderCache componentHolders;
+    @Getter(value = AccessLevel.PUBLIC)
+    private final TabListUpdateBuffer updateBuffer;
     private final Map<Class<?>, Field> entriesFields;
+    private final Map<UUID, JoinAttempt> joining;
+    @Getter(value = AccessLevel.PUBLIC)
+    private final JoinLatencies joinLatencies;
+    private final Debouncer<Group> headerFooterRefresh;
 
     public PlayerTabList(@NotNull Velocitab plugin) {
         this.plugin = plugin;
         this.vanishTabList = new VanishTabList(plugin, this);
         this.players = Maps.newConcurrentMap();
         this.taskManager = new TaskManager(plugin);
+        this.playerIndex = new PlayerIndex();
+        this.componentHolders = new ComponentHolderCache();
+        this.updateBuffer = new TabListUpdateBuffer(plugin, componentHolders);
         this.entriesFields = Maps.newHashMap();
+        this.joining = Maps.newConcurrentMap();
+        this.joinLatencies = new JoinLatencies();
+        this.headerFooterRefresh = new Debouncer<>(plugin, taskManager, HEADER_FOOTER_QUIET_PERIOD,
+                HEADER_FOOTER_MAX_DELAY, group -> taskManager.run(group, () -> refreshHeaderFooter(group)));
         this.registerListener();
         this.ensureDisplayNameTask();
         this.registerFields();
@@ -135,6 +159,7 @@ public class PlayerTabList {
             }
 
             final String serverName = server.get().getServerInfo().getName();
+            playerIndex.connect(p, serverName);
             final @NotNull Optional<Group> group = getGroup(serverName);
             if (group.isEmpty()) {
                 return;
@@ -146,18 +171,46 @@ public class PlayerTabList {
         reloadUpdate();
     }
 
-    protected void loadPlayer(@NotNull Player player, @NotNull Group group, int delay) {
-        final ScheduledTask task = plugin.getServer().getScheduler()
-                .buildTask(plugin, () -> plugin.getPlaceholderManager().fetchPlaceholders(player.getUniqueId(), group.getTextsWithPlaceholders(plugin), group))
-                .delay(150, TimeUnit.MILLISECONDS)
-                .repeat(50, TimeUnit.MILLISECONDS)
-                .schedule();
+    /**
+     * Load a player who connected to a server of a group.
+     * The player joins the TAB list once the placeholders of the group are resolved, or once the join deadline passed,
+     * but never before the minimum delay, which lets the backend's own TAB list packets and the removal of the
+     * player's old entry go through first.
+     *
+     * @param player   The player
+     * @param group    The group of the server
+     * @param minDelay The minimum delay, in milliseconds, before the player joins
+     */
+    protected void loadPlayer(@NotNull Player player, @NotNull Group group, int minDelay) {
+        final JoinAttempt attempt = new JoinAttempt(player, group, System.currentTimeMillis(), minDelay);
+        joining.put(player.getUniqueId(), attempt);
+        // The player's placeholders are unblocked 10ms after they connected
+        taskManager.runDelayed(group, player.getUniqueId(), () -> awaitReadiness(attempt), 20, TimeUnit.MILLISECONDS);
+    }
+
+    private void awaitReadiness(@NotNull JoinAttempt attempt) {
+        final UUID uuid = attempt.player().getUniqueId();
+        if (joining.get(uuid) != attempt) {
+            // Superseded by a newer join
+            return;
+        }
 
         //After updating papiproxybridge we can check if redis is used
-        taskManager.runDelayed(() -> {
-            task.cancel();
-            joinPlayer(player, group);
-        }, delay, TimeUnit.MILLISECONDS);
+        final Group group = attempt.group();
+        plugin.getPlaceholderManager().fetchPlaceholders(uuid, group.getTextsWithPlaceholders(plugin), group);
+        final boolean ready = plugin.getPlaceholderManager().isReady(uuid, group);
+        final long elapsed = System.currentTimeMillis() - attempt.start();
+        final long deadline = Math.max(plugin.getSettings().getJoinDeadline(), attempt.minDelay());
+        if (elapsed < attempt.minDelay() || (!ready && elapsed < deadline)) {
+            // Readiness can only make the join later than the minimum delay, never earlier
+            final long wait = ready ? attempt.minDelay() - elapsed : Math.min(JOIN_POLL_RATE, deadline - elapsed);
+            taskManager.runDelayed(group, uuid, () -> awaitReadiness(attempt), Math.max(1, wait), TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        joining.remove(uuid, attempt);
+        joinPlayer(attempt.player(), group);
+        joinLatencies.record(System.currentTimeMillis() - attempt.start(), !ready);
     }
 
     /**
@@ -166,6 +219,7 @@ public class PlayerTabList {
      */
     public void close() {
         taskManager.close();
+        playerIndex.clear();
         plugin.getServer().getAllPlayers().forEach(p -> {
             final Optional<ServerConnection> server = p.getCurrentServer();
             if (server.isEmpty()) return;
@@ -221,6 +275,7 @@ public class PlayerTabList {
         players.putIfAbsent(joined.getUniqueId(), tabPlayer);
         tabPlayer.sendHeaderAndFooter(this);
         tabPlayer.setLoaded(true);
+        playerIndex.add(tabPlayer);
         final List<TabPlayer> tabPlayers = group.getTabPlayers(plugin, tabPlayer);
         updateTabListOnJoin(tabPlayer, group, tabPlayers, isVanished);
     }
@@ -251,8 +306,9 @@ public class PlayerTabList {
             if (iteratedPlayer != tabPlayer) {
                 checkVisibilityAndUpdateName(tabPlayer, iteratedPlayer, isJoinedVanished);
             }
-            iteratedPlayer.sendHeaderAndFooter(this);
         }
+        // The joined player already received their header and footer, the other players are refreshed once joins settled
+        requestHeaderFooterRefresh(group);
         final ScoreboardManager scoreboardManager = plugin.getScoreboardManager();
         scoreboardManager.resendAllTeams(tabPlayer);
         updateSorting(tabPlayer, false);
@@ -315,6 +371,7 @@ public class PlayerTabList {
 
     protected void removePlayer(@NotNull Player target) {
         final UUID uuid = target.getUniqueId();
+        joining.remove(uuid);
         final Optional<TabPlayer> tabPlayer = getTabPlayer(target.getUniqueId());
         if (tabPlayer.isEmpty()) {
             return;
@@ -322,13 +379,12 @@ public class PlayerTabList {
 
         final Group group = tabPlayer.get().getGroup();
         tabPlayer.get().setLoaded(false);
+        playerIndex.remove(uuid);
 
-        taskManager.runDelayed(() -> {
+        taskManager.runDelayed(group, () -> {
             final List<TabPlayer> list = group.getTabPlayers(plugin, tabPlayer.get());
-            list.forEach(player -> {
-                player.getPlayer().getTabList().removeEntry(uuid);
-                player.sendHeaderAndFooter(this);
-            });
+            list.forEach(player -> player.getPlayer().getTabList().removeEntry(uuid));
+            requestHeaderFooterRefresh(group);
         }, 250, TimeUnit.MILLISECONDS);
 
         // Delete player team
@@ -370,7 +426,7 @@ public class PlayerTabList {
     protected void calculateAndSetDisplayName(@NotNull TabPlayer player, @NotNull TabPlayer viewer) {
         final String withPlaceholders = plugin.getPlaceholderManager().applyPlaceholders(player, player.getGroup().format());
         final String unformatted = plugin.getPlaceholderManager().formatVelocitabPlaceholders(withPlaceholders, player, null);
-        if (!plugin.getSettings().isEnableRelationalPlaceholders() || !viewer.isRelationalPermission()) {
+        if (!isRelationalRendering() || !viewer.isRelationalPermission()) {
             final String stripped = plugin.getPlaceholderManager().stripVelocitabRelPlaceholders(unformatted);
             final Component displayName = formatComponent(player, stripped);
             updateEntryDisplayName(player, viewer, displayName);
@@ -395,15 +451,22 @@ public class PlayerTabList {
         // Allow API consumers to transform the display name before it reaches the client.
         // Fired after the cache check to avoid unnecessary event firing for unchanged values.
         // The post-event value is cached and sent, keeping the cache consistent with what clients receive.
-        final Component finalDisplayName = plugin.getEventDispatcher()
-                .fireDisplayNameEvent(player, viewer, displayName);
+        plugin.getEventDispatcher().fireDisplayNameEvent(player, viewer, displayName,
+                finalDisplayName -> applyEntryDisplayName(player, viewer, finalDisplayName));
+    }
 
-        player.setRelationalDisplayName(viewer.getPlayer().getUniqueId(), finalDisplayName);
+    private void applyEntryDisplayName(@NotNull TabPlayer player, @NotNull TabPlayer viewer, @NotNull Component displayName) {
+        // Listeners complete asynchronously, either player may have left in the meantime
+        if (!players.containsKey(player.getPlayer().getUniqueId()) || !viewer.getPlayer().isActive()) {
+            return;
+        }
+
+        player.setRelationalDisplayName(viewer.getPlayer().getUniqueId(), displayName);
         viewer.getPlayer().getTabList().getEntry(player.getPlayer().getUniqueId())
                 .ifPresentOrElse(
-                        entry -> entry.setDisplayName(finalDisplayName),
+                        entry -> updateBuffer.setDisplayName(viewer.getPlayer(), entry, displayName),
                         () -> viewer.getPlayer().getTabList()
-                                .addEntry(createEntry(player, viewer.getPlayer().getTabList(), finalDisplayName))
+                                .addEntry(createEntry(player, viewer.getPlayer().getTabList(), displayName))
                 );
     }
 
@@ -419,11 +482,26 @@ public class PlayerTabList {
 
     public void updateHeaderFooter(@NotNull Group group) {
         group.getTabPlayers(plugin, false).forEach(p -> {
-            p.incrementIndexes();
+            if (!taskManager.getQualityController().isAnimationPaused()) {
+                p.incrementIndexes();
+            }
             p.sendHeaderAndFooter(this);
         });
     }
 
+    // Joins and quits change the placeholders of the headers and footers of the players who see the player
+    private void requestHeaderFooterRefresh(@NotNull Group group) {
+        if (plugin.getSettings().isShowAllPlayersFromAllGroups()) {
+            plugin.getTabGroupsManager().getGroups().forEach(headerFooterRefresh::request);
+            return;
+        }
+        headerFooterRefresh.request(group);
+    }
+
+    private void refreshHeaderFooter(@NotNull Group group) {
+        group.getTabPlayers(plugin, false).forEach(p -> p.sendHeaderAndFooter(this));
+    }
+
     // Update a player's name in the tab list and scoreboard team
     public void updatePlayer(@NotNull TabPlayer tabPlayer, boolean force) {
         if (!tabPlayer.getPlayer().isActive()) {
@@ -434,13 +512,14 @@ public class PlayerTabList {
         plugin.getPlaceholderManager().fetchPlaceholders(tabPlayer.getPlayer().getUniqueId(), tabPlayer.getGroup().sortingPlaceholders(), tabPlayer.getGroup());
 
         //to make sure that role placeholder is updated even for a backend placeholder
-        taskManager.runDelayed(() -> updateSorting(tabPlayer, force), 100, TimeUnit.MILLISECONDS);
+        taskManager.runDelayed(tabPlayer.getGroup(), tabPlayer.getPlayer().getUniqueId(),
+                () -> updateSorting(tabPlayer, force), 100, TimeUnit.MILLISECONDS);
     }
 
 
     public void updateSorting(@NotNull Group group) {
         final List<TabPlayer> players = group.getTabPlayers(plugin);
-        players.forEach(p -> updateSorting(p, false, players));
+        updateBuffer.batch(() -> players.forEach(p -> updateSorting(p, false, players)));
     }
 
     private void updateSorting(@NotNull TabPlayer tabPlayer, boolean force) {
@@ -467,6 +546,33 @@ public class PlayerTabList {
 
         tabPlayer.setListOrder(order);
         recalculateSortingForPlayers(tabPlayer, players, order);
+
+        final int shiftedPosition = plugin.getScoreboardManager().consumeShiftedPosition(tabPlayer.getGroup());
+        if (shiftedPosition != Integer.MAX_VALUE) {
+            updateShiftedSorting(tabPlayer, players, shiftedPosition);
+        }
+    }
+
+    // Resend the list order of the players whose team position shifted after a team was added or removed
+    private void updateShiftedSorting(@NotNull TabPlayer tabPlayer, @NotNull List<TabPlayer> players, int shiftedPosition) {
+        updateBuffer.batch(() -> players.forEach(player -> {
+            if (player == tabPlayer || player.getListOrder() < shiftedPosition) {
+                return;
+            }
+
+            final Optional<String> teamName = player.getLastTeamName();
+            if (teamName.isEmpty()) {
+                return;
+            }
+
+            final int order = plugin.getScoreboardManager().getPosition(teamName.get());
+            if (order == -1 || order == player.getListOrder()) {
+                return;
+            }
+
+            player.setListOrder(order);
+            recalculateSortingForPlayers(player, players, order);
+        }));
     }
 
     private boolean hasListOrder(TabPlayer tabPlayer) {
@@ -476,7 +582,7 @@ public class PlayerTabList {
     private void updateSorting(TabPlayer tabPlayer, UUID uuid, int position) {
         tabPlayer.getPlayer().getTabList().getEntry(uuid)
                 .filter(entry -> entry.getListOrder() != position)
-                .ifPresent(entry -> entry.setListOrder(position));
+                .ifPresent(entry -> updateBuffer.setListOrder(tabPlayer.getPlayer(), entry, position));
     }
 
     public synchronized void recalculateSortingForPlayers(@NotNull TabPlayer tabPlayer, @NotNull List<TabPlayer> players, int order) {
@@ -496,58 +602,132 @@ public class PlayerTabList {
     }
 
     public void updateGroupNames(@NotNull Group group) {
+        updateGroupNames(group, true);
+    }
+
+    /**
+     * Update the display names of the players in a group.
+     * Unless {@code reconcile} is set, only players whose display name inputs changed are re-rendered.
+     *
+     * @param group     The group to update
+     * @param reconcile Whether to re-render every player regardless of their dirty state
+     */
+    public void updateGroupNames(@NotNull Group group, boolean reconcile) {
         final List<TabPlayer> players = group.getTabPlayers(plugin);
-        if (plugin.getSettings().isEnableRelationalPlaceholders()) {
-            updateRelationalGroupNames(players);
-            return;
-        }
+        final boolean force = reconcile || isAlwaysDirty();
+        updateBuffer.batch(() -> plugin.getEventDispatcher().batchDisplayNameEvents(() -> {
+            if (isRelationalRendering()) {
+                updateRelationalGroupNames(players, force);
+                return;
+            }
 
-        updateNormalGroupNames(players, group);
+            updateNormalGroupNames(players, group, force);
+        }));
     }
 
     public void updateNames(@NotNull List<TabPlayer> players) {
-        if (plugin.getSettings().isEnableRelationalPlaceholders()) {
-            updateRelationalGroupNames(players);
-            return;
+        updateNames(players, true);
+    }
+
+    public void updateNames(@NotNull List<TabPlayer> players, boolean reconcile) {
+        final boolean force = reconcile || isAlwaysDirty();
+        updateBuffer.batch(() -> plugin.getEventDispatcher().batchDisplayNameEvents(() -> {
+            if (isRelationalRendering()) {
+                updateRelationalGroupNames(players, force);
+                return;
+            }
+
+            updateNormalGroupNames(players, force);
+        }));
+    }
+
+    /**
+     * Check whether a format update would re-render any of the given players
+     *
+     * @param players The players to check
+     * @return {@code true} if a display name input of a player changed, or changes can't be tracked
+     */
+    public boolean hasPendingNames(@NotNull Collection<TabPlayer> players) {
+        if (isAlwaysDirty()) {
+            return true;
         }
+        for (TabPlayer player : players) {
+            if (player.isDirty()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        updateNormalGroupNames(players);
+    // Relational placeholders are rendered like normal ones while the quality is lowered under load
+    private boolean isRelationalRendering() {
+        return plugin.getSettings().isEnableRelationalPlaceholders() && !taskManager.getQualityController().isRelationalPaused();
     }
 
-    private void updateNormalGroupNames(List<TabPlayer> players, @NotNull Group group) {
+    // MiniPlaceholders are resolved while formatting, so their changes can't be tracked
+    private boolean isAlwaysDirty() {
+        return plugin.getFormatter() == Formatter.MINIMESSAGE && plugin.getMiniPlaceholdersHook().isPresent();
+    }
+
+    private void updateNormalGroupNames(@NotNull List<TabPlayer> players, @NotNull Group group, boolean force) {
         final String stripped = plugin.getPlaceholderManager().stripVelocitabRelPlaceholders(group.format());
         checkStrippedString(stripped, group);
 
         for (TabPlayer player : players) {
+            if (!player.consumeDirty() && !force) {
+                continue;
+            }
+
             updateNormalDisplayName(player, players, stripped);
         }
     }
 
-    private void updateNormalGroupNames(@NotNull List<TabPlayer> players) {
+    private void updateNormalGroupNames(@NotNull List<TabPlayer> players, boolean force) {
         final Map<Group, String> strippedGroups = plugin.getTabGroupsManager().getGroups().stream()
                 .map(g -> Pair.of(g, plugin.getPlaceholderManager().stripVelocitabRelPlaceholders(g.format())))
                 .peek(pair -> checkStrippedString(pair.right(), pair.left()))
                 .collect(Collectors.toMap(Pair::left, Pair::right));
 
         for (TabPlayer player : players) {
+            if (!player.consumeDirty() && !force) {
+                continue;
+            }
+
             final String stripped = strippedGroups.get(player.getGroup());
             updateNormalDisplayName(player, players, stripped);
         }
     }
 
-    private void updateRelationalGroupNames(@NotNull List<TabPlayer> players) {
+    private void updateRelationalGroupNames(@NotNull List<TabPlayer> players, boolean force) {
+        // A dirty relational viewer needs every entry it sees re-rendered, a dirty player needs its entry
+        // re-rendered for every viewer. Players which aren't rendered keep their dirty flag for a later pass
+        final List<TabPlayer> dirty = players.stream()
+                .filter(p -> p.getPlayer().isActive() && p.isLoaded())
+                .filter(TabPlayer::consumeDirty)
+                .toList();
+        final Set<UUID> dirtyPlayers = dirty.stream()
+                .map(p -> p.getPlayer().getUniqueId())
+                .collect(Collectors.toSet());
+        final List<TabPlayer> dirtyViewers = dirty.stream()
+                .filter(TabPlayer::isRelationalPermission)
+                .toList();
+
         for (TabPlayer current : players) {
             if (!current.getPlayer().isActive() || !current.isLoaded()) {
                 continue;
             }
 
-            updateRelationalDisplayName(current, players);
+            if (force || dirtyPlayers.contains(current.getPlayer().getUniqueId())) {
+                updateRelationalDisplayName(current, players);
+            } else if (!dirtyViewers.isEmpty()) {
+                updateRelationalDisplayName(current, dirtyViewers);
+            }
         }
     }
 
     public void updateDisplayName(@NotNull TabPlayer tabPlayer) {
         final List<TabPlayer> players = tabPlayer.getGroup().getTabPlayers(plugin, tabPlayer);
-        if (plugin.getSettings().isEnableRelationalPlaceholders()) {
+        if (isRelationalRendering()) {
             updateRelationalDisplayName(tabPlayer, players);
             return;
         }
@@ -584,6 +764,11 @@ public class PlayerTabList {
         final String formatConditionalPlaceholdersWithoutRelational = plugin.getPlaceholderManager().stripVelocitabRelPlaceholders(formatConditionalPlaceholders);
         final Component relationalPlaceholder = formatComponent(tabPlayer, formatConditionalPlaceholdersWithoutRelational);
         final boolean isVanished = plugin.getVanishManager().isVanished(tabPlayer.getPlayer().getUsername());
+
+        // Viewers with the same relational inputs see the same display name, so it is rendered once per class
+        final ConditionManager.RelationalInputs inputs = plugin.getPlaceholderManager().getConditionManager()
+                .getRelationalInputs(plugin.getPlaceholderManager().getTemplate(group.format()));
+        final Map<ViewerClass, Component> rendered = Maps.newHashMap();
         players.forEach(viewer -> {
             if (cantSeePlayer(viewer, tabPlayer, group, isVanished)) {
                 return;
@@ -594,13 +779,39 @@ public class PlayerTabList {
                 return;
             }
 
-            final String withPlaceholders = plugin.getPlaceholderManager().applyViewerPlaceholders(viewer, formatConditionalPlaceholders);
-            final String unformatted = plugin.getPlaceholderManager().formatVelocitabPlaceholders(withPlaceholders, tabPlayer, viewer);
-            final Component displayNameComponent = formatRelationalComponent(tabPlayer, viewer, unformatted);
+            final String withPlaceholders = plugin.getPlaceholderManager().applyPlaceholders(tabPlayer, group.format(), viewer);
+            final Component displayNameComponent = rendered.computeIfAbsent(getViewerClass(viewer, withPlaceholders, inputs), viewerClass -> {
+                final String conditional = plugin.getPlaceholderManager().formatVelocitabPlaceholders(withPlaceholders, tabPlayer, null);
+                final String unformatted = plugin.getPlaceholderManager().formatVelocitabPlaceholders(conditional, tabPlayer, viewer);
+                return formatRelationalComponent(tabPlayer, viewer, unformatted);
+            });
             updateEntryDisplayName(tabPlayer, viewer, displayNameComponent);
         });
     }
 
+    @NotNull
+    private ViewerClass getViewerClass(@NotNull TabPlayer viewer, @NotNull String withPlaceholders,
+                                       @NotNull ConditionManager.RelationalInputs inputs) {
+        final BitSet permissions = new BitSet(inputs.permissions().size());
+        for (int i = 0; i < inputs.permissions().size(); i++) {
+            permissions.set(i, viewer.getPlayer().hasPermission(inputs.permissions().get(i)));
+        }
+        final boolean vanished = inputs.vanish() && plugin.getVanishManager().isVanished(viewer.getPlayer().getUsername());
+        final String name = inputs.viewerName() ? viewer.getPlayer().getUsername() : null;
+
+        // MiniPlaceholders relational placeholders are resolved by the formatter for each viewer, and the inputs of
+        // relational tags with placeholders can't be read from the format, so both are rendered for each viewer
+        final UUID uuid = inputs.dynamic() || (plugin.getMiniPlaceholdersHook().isPresent()
+                                               && MiniMessageUtil.getINSTANCE().hasCustomTags(withPlaceholders))
+                ? viewer.getPlayer().getUniqueId() : null;
+        return new ViewerClass(withPlaceholders, permissions, vanished, name, uuid);
+    }
+
+    // The inputs a relational display name is rendered from, besides the player it belongs to
+    private record ViewerClass(@NotNull String text, @NotNull BitSet permissions, boolean vanished,
+                               @Nullable String name, @Nullable UUID uuid) {
+    }
+
     public boolean cantSeePlayer(@NotNull TabPlayer viewer, @NotNull TabPlayer tabPlayer,
                                  @NotNull Group group, boolean isVanished) {
         if (isVanished && !plugin.getVanishManager().canSee(viewer.getPlayer().getUsername(), tabPlayer.getPlayer().getUsername())) {
@@ -637,13 +848,13 @@ public class PlayerTabList {
 
                             final Component lastDisplayName = displayNameOptional.get();
                             if (bypass || entry.getDisplayNameComponent().isEmpty() || !lastDisplayName.equals(entry.getDisplayNameComponent().get())) {
-                                entry.setDisplayName(lastDisplayName);
+                                updateBuffer.setDisplayName(player.getPlayer(), entry, lastDisplayName);
                             }
                         }));
     }
 
     public void checkCorrectDisplayNames() {
-        players.values().forEach(this::checkCorrectDisplayName);
+        updateBuffer.batch(() -> players.values().forEach(this::checkCorrectDisplayName));
     }
 
     public void ensureDisplayNameTask() {
@@ -677,8 +888,11 @@ public class PlayerTabList {
      */
     public void reloadUpdate() {
         taskManager.cancelAllTasks();
+        taskManager.getQualityController().reload();
         plugin.getPlaceholderManager().reload();
         plugin.getPlaceholderManager().preparePlaceholdersReplacements();
+        plugin.getFormatter().invalidateCache();
+        componentHolders.clear();
         plugin.getTabGroupsManager().getGroups().forEach(g -> {
             plugin.getPlaceholderManager().fetchPlaceholders(g);
             taskManager.updatePeriodically(g);
@@ -705,6 +919,9 @@ public class PlayerTabList {
                     return;
                 }
                 player.setGroup(group.get());
+                if (player.isLoaded()) {
+                    playerIndex.add(player);
+                }
                 this.sendPlayerServerLinks(player);
                 this.updatePlayer(player, true);
                 player.sendHeaderAndFooter(this);
@@ -736,5 +953,10 @@ public class PlayerTabList {
      */
     public void removeOfflinePlayer(@NotNull Player player) {
         players.remove(player.getUniqueId());
+        playerIndex.remove(player.getUniqueId());
     }
+
+    private record JoinAttempt(@NotNull Player player, @NotNull Group group, long start, int minDelay) {
+    }
+
 }
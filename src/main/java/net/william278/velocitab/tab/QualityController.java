@@ -0,0 +1,155 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.william278.velocitab.tab;
+
+import lombok.Getter;
+import net.william278.velocitab.Velocitab;
+import net.william278.velocitab.player.TabPlayer;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lowers the quality of TAB list updates while update cycles exceed their budget, and restores it once there is
+ * headroom again. Each level includes the degradations of the levels below it:
+ * <ol start="0">
+ *     <li>Full quality</li>
+ *     <li>Format, nametag and header/footer updates run at half their configured rate</li>
+ *     <li>Relational placeholders are rendered like normal placeholders</li>
+ *     <li>Header and footer animations are paused</li>
+ * </ol>
+ * Only the tasks which can be slowed down are measured, as lowering the quality cannot make other tasks, like
+ * placeholder or latency updates, any faster. A cycle's load is the time it took relative to its period. The level is lowered by one step after a window in which
+ * a cycle used more than its whole period, and raised by one step after several windows in which no cycle used more
+ * than half of it.
+ */
+public class QualityController {
+
+    public static final int MAX_LEVEL = 3;
+    public static final long WINDOW_MILLIS = 5000;
+    private static final long STRETCH_FACTOR = 2;
+    private static final long OVERLOAD_PERMILLE = 1000;
+    private static final long HEADROOM_PERMILLE = 500;
+    private static final int RECOVERY_WINDOWS = 3;
+
+    private final Velocitab plugin;
+    @Getter
+    private volatile boolean enabled;
+    @Getter
+    private volatile int level;
+    // The highest load of a cycle in the current window, in permille of its period
+    private final AtomicLong windowLoad;
+    private int calmWindows;
+
+    public QualityController(@NotNull Velocitab plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getSettings().isAdaptiveQuality();
+        this.windowLoad = new AtomicLong();
+    }
+
+    /**
+     * Re-read the {@code adaptive_quality} setting, restoring full quality if it was turned off
+     */
+    public void reload() {
+        enabled = plugin.getSettings().isAdaptiveQuality();
+        if (enabled || level == 0) {
+            return;
+        }
+
+        final int oldLevel = level;
+        level = 0;
+        windowLoad.set(0);
+        calmWindows = 0;
+        plugin.log(Level.INFO, "Adaptive quality was disabled, restored TAB list quality to level 0");
+        if (oldLevel >= 2) {
+            plugin.getTabList().getPlayers().values().forEach(TabPlayer::markDirty);
+        }
+    }
+
+    /**
+     * Record the time an update cycle of a task which can be slowed down took
+     *
+     * @param time   The time the cycle took, in nanoseconds
+     * @param period The period of the cycle, in nanoseconds
+     */
+    public void record(long time, long period) {
+        if (enabled && period > 0) {
+            windowLoad.accumulateAndGet(time * 1000 / period, Math::max);
+        }
+    }
+
+    /**
+     * Close the current window and step the level if needed
+     */
+    protected void evaluate() {
+        if (!enabled) {
+            return;
+        }
+
+        final long load = windowLoad.getAndSet(0);
+        if (load > OVERLOAD_PERMILLE) {
+            calmWindows = 0;
+            if (level < MAX_LEVEL) {
+                setLevel(level + 1, load);
+            }
+            return;
+        }
+
+        if (load >= HEADROOM_PERMILLE || level == 0) {
+            calmWindows = 0;
+            return;
+        }
+        if (++calmWindows >= RECOVERY_WINDOWS) {
+            calmWindows = 0;
+            setLevel(level - 1, load);
+        }
+    }
+
+    private void setLevel(int newLevel, long load) {
+        final int oldLevel = level;
+        level = newLevel;
+        plugin.log(Level.INFO, "Update cycles used up to %d%% of their period, %s TAB list quality to level %d"
+                .formatted(load / 10, newLevel > oldLevel ? "lowered" : "restored", newLevel));
+
+        // Names have to be re-rendered when switching between relational and normal rendering
+        if ((oldLevel >= 2) != (newLevel >= 2)) {
+            plugin.getTabList().getPlayers().values().forEach(TabPlayer::markDirty);
+        }
+    }
+
+    /**
+     * Get the period to wait between two cycles of a task which can be slowed down
+     *
+     * @param period The configured period
+     * @return The period to use at the current level
+     */
+    public long stretch(long period) {
+        return level >= 1 ? period * STRETCH_FACTOR : period;
+    }
+
+    public boolean isRelationalPaused() {
+        return level >= 2;
+    }
+
+    public boolean isAnimationPaused() {
+        return level >= 3;
+    }
+
+}
@@ -83,10 +83,7 @@ public class TabListListener {
         event.getPlayer().getTabList().clearHeaderAndFooter();
         justQuit.add(event.getPlayer().getUniqueId());
 
-        plugin.getServer().getScheduler().buildTask(plugin,
-                        () -> justQuit.remove(event.getPlayer().getUniqueId()))
-                .delay(300, TimeUnit.MILLISECONDS)
-                .schedule();
+        tabList.getTaskManager().runDelayed(() -> justQuit.remove(event.getPlayer().getUniqueId()), 300, TimeUnit.MILLISECONDS);
     }
 
 
@@ -116,6 +113,10 @@ public class TabListListener {
 
         // Mark the previous tab player as unloaded
         previousTabPlayer.ifPresent(player -> player.setLoaded(false));
+        tabList.getPlayerIndex().remove(joined.getUniqueId());
+        if (!serverName.isEmpty()) {
+            tabList.getPlayerIndex().connect(joined, serverName);
+        }
 
         // If the player was in a group and the new group is different or not set, remove the old entry
         if (!plugin.getSettings().isShowAllPlayersFromAllGroups() && previousGroup.isPresent()
@@ -126,7 +127,7 @@ public class TabListListener {
 
             // If a player moved to a server without a group, remove possible entries
             if (groupOptional.isEmpty() && joined.getCurrentServer().isPresent()) {
-                plugin.getTabList().getTaskManager().runDelayed(() -> {
+                plugin.getTabList().getTaskManager().runDelayed(joined.getUniqueId(), () -> {
                     final RegisteredServer server = joined.getCurrentServer().get().getServer();
                     final Set<UUID> players = server.getPlayersConnected().stream()
                             .map(Player::getUniqueId).collect(Collectors.toSet());
@@ -150,6 +151,7 @@ public class TabListListener {
 
             cleanOldHeadersAndFooters(previousTabPlayer.get());
             tabList.getPlayers().remove(event.getPlayer().getUniqueId());
+            tabList.getPlayerIndex().remove(event.getPlayer().getUniqueId());
             return;
         }
 
@@ -160,7 +162,7 @@ public class TabListListener {
         final Group group = groupOptional.get();
         plugin.getScoreboardManager().resetCache(joined, group);
 
-        plugin.getServer().getScheduler().buildTask(plugin, () -> plugin.getPlaceholderManager().unblockPlayer(joined.getUniqueId())).delay(10, TimeUnit.MILLISECONDS).schedule();
+        tabList.getTaskManager().runDelayed(joined.getUniqueId(), () -> plugin.getPlaceholderManager().unblockPlayer(joined.getUniqueId()), 10, TimeUnit.MILLISECONDS);
 
         tabList.loadPlayer(joined, group, justQuit.contains(joined.getUniqueId()) ? 400 : 500);
     }
@@ -176,6 +178,10 @@ public class TabListListener {
             return;
         }
 
+        // Pending joins and updates of the player are no longer needed
+        tabList.getTaskManager().cancelDelayed(event.getPlayer().getUniqueId());
+        tabList.getPlayerIndex().disconnect(event.getPlayer().getUniqueId());
+
         // Remove the player from the tab list of all other players
         tabList.removePlayer(event.getPlayer());
         plugin.getPlaceholderManager().clearPlaceholders(event.getPlayer().getUniqueId());
@@ -190,14 +196,14 @@ public class TabListListener {
     }
 
     private void removeOldEntry(@NotNull Group group, @NotNull UUID uuid) {
-        tabList.getTaskManager().runDelayed(() -> tabList.removeOldEntry(group, uuid), 100, TimeUnit.MILLISECONDS);
+        tabList.getTaskManager().runDelayed(group, () -> tabList.removeOldEntry(group, uuid), 100, TimeUnit.MILLISECONDS);
     }
 
     private void cleanOldHeadersAndFooters(@NotNull TabPlayer tabPlayer) {
         final Component header = tabPlayer.getLastHeader();
         final Component footer = tabPlayer.getLastFooter();
 
-        plugin.getServer().getScheduler().buildTask(plugin, () -> {
+        tabList.getTaskManager().runDelayed(tabPlayer.getPlayer().getUniqueId(), () -> {
             final Component currentHeader = tabPlayer.getPlayer().getPlayerListHeader();
             final Component currentFooter = tabPlayer.getPlayer().getPlayerListFooter();
             if ((header.equals(currentHeader) && footer.equals(currentFooter)) ||
@@ -208,6 +214,6 @@ public class TabListListener {
                         player.getTabList().getEntry(tabPlayer.getPlayer().getUniqueId())
                                 .ifPresent(entry -> entry.setDisplayName(Component.text(tabPlayer.getPlayer().getUsername())))));
             }
-        }).delay(500, TimeUnit.MILLISECONDS).schedule();
+        }, 500, TimeUnit.MILLISECONDS);
     }
 }
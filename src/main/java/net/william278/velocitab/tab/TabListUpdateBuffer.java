@@ -0,0 +1,202 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.velocitab.tab;
+
+import com.google.common.collect.Maps;
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.player.TabListEntry;
+import com.velocitypowered.proxy.connection.client.ConnectedPlayer;
+import com.velocitypowered.proxy.protocol.packet.UpsertPlayerInfoPacket;
+import net.kyori.adventure.text.Component;
+import net.william278.velocitab.Velocitab;
+import net.william278.velocitab.packet.ComponentHolderCache;
+import net.william278.velocitab.util.DebugSystem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Collects tab list entry changes made during an update cycle and sends them as a single
+ * {@link UpsertPlayerInfoPacket} per viewer, instead of one packet per entry and per field.
+ * <p>
+ * Changes are applied to Velocity's entries without emitting a packet, so the proxy-side tab list state stays
+ * accurate while the batch is open. Legacy (keyed) tab lists, or proxies where the internal setters can't be
+ * accessed, fall back to the regular {@link TabListEntry} setters.
+ */
+public class TabListUpdateBuffer {
+
+    private static final Class<?> ENTRY_CLASS;
+    private static final MethodHandle ENTRY$setDisplayName;
+    private static final MethodHandle ENTRY$setLatency;
+    private static final MethodHandle ENTRY$setListOrder;
+
+    static {
+        Class<?> entryClass = null;
+        MethodHandle setDisplayName = null;
+        MethodHandle setLatency = null;
+        MethodHandle setListOrder = null;
+        try {
+            entryClass = Class.forName("com.velocitypowered.proxy.tablist.VelocityTabListEntry");
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(entryClass, MethodHandles.lookup());
+            setDisplayName = lookup.findVirtual(entryClass, "setDisplayNameWithoutUpdate",
+                    MethodType.methodType(void.class, Component.class));
+            setLatency = lookup.findVirtual(entryClass, "setLatencyWithoutUpdate",
+                    MethodType.methodType(void.class, int.class));
+            setListOrder = lookup.findVirtual(entryClass, "setListOrderWithoutUpdate",
+                    MethodType.methodType(void.class, int.class));
+        } catch (Throwable e) {
+            DebugSystem.log(DebugSystem.DebugLevel.WARNING, "Batched tab list updates are unavailable, falling back to per-entry packets");
+            entryClass = null;
+        }
+        ENTRY_CLASS = entryClass;
+        ENTRY$setDisplayName = setDisplayName;
+        ENTRY$setLatency = setLatency;
+        ENTRY$setListOrder = setListOrder;
+    }
+
+    private final Velocitab plugin;
+    private final ComponentHolderCache componentHolders;
+    private final ThreadLocal<Map<UUID, ViewerUpdate>> batch;
+
+    public TabListUpdateBuffer(@NotNull Velocitab plugin, @NotNull ComponentHolderCache componentHolders) {
+        this.plugin = plugin;
+        this.componentHolders = componentHolders;
+        this.batch = new ThreadLocal<>();
+    }
+
+    /**
+     * Run an update cycle, sending every entry change it makes once per viewer when it completes.
+     * Nested calls join the outermost batch.
+     *
+     * @param runnable The update cycle
+     */
+    public void batch(@NotNull Runnable runnable) {
+        if (ENTRY_CLASS == null || batch.get() != null) {
+            runnable.run();
+            return;
+        }
+
+        final Map<UUID, ViewerUpdate> updates = Maps.newLinkedHashMap();
+        batch.set(updates);
+        try {
+            runnable.run();
+        } finally {
+            batch.remove();
+            updates.values().forEach(this::flush);
+        }
+    }
+
+    public void setDisplayName(@NotNull Player viewer, @NotNull TabListEntry entry, @Nullable Component displayName) {
+        if (!queue(viewer, entry, UpsertPlayerInfoPacket.Action.UPDATE_DISPLAY_NAME, ENTRY$setDisplayName, displayName)) {
+            entry.setDisplayName(displayName);
+        }
+    }
+
+    public void setLatency(@NotNull Player viewer, @NotNull TabListEntry entry, int latency) {
+        if (!queue(viewer, entry, UpsertPlayerInfoPacket.Action.UPDATE_LATENCY, ENTRY$setLatency, latency)) {
+            entry.setLatency(latency);
+        }
+    }
+
+    public void setListOrder(@NotNull Player viewer, @NotNull TabListEntry entry, int listOrder) {
+        if (!queue(viewer, entry, UpsertPlayerInfoPacket.Action.UPDATE_LIST_ORDER, ENTRY$setListOrder, listOrder)) {
+            entry.setListOrder(listOrder);
+        }
+    }
+
+    private boolean queue(@NotNull Player viewer, @NotNull TabListEntry entry, @NotNull UpsertPlayerInfoPacket.Action action,
+                          @NotNull MethodHandle setter, @Nullable Object value) {
+        final Map<UUID, ViewerUpdate> updates = batch.get();
+        if (updates == null || !ENTRY_CLASS.isInstance(entry) || !(viewer instanceof ConnectedPlayer)) {
+            return false;
+        }
+
+        try {
+            setter.invoke(entry, value);
+        } catch (Throwable e) {
+            DebugSystem.log(DebugSystem.DebugLevel.ERROR, "Failed to queue tab list update for {}", viewer.getUsername(), e);
+            return false;
+        }
+
+        updates.computeIfAbsent(viewer.getUniqueId(), u -> new ViewerUpdate((ConnectedPlayer) viewer))
+                .entries().computeIfAbsent(entry.getProfile().getId(), u -> new EntryUpdate(entry))
+                .actions().add(action);
+        return true;
+    }
+
+    private void flush(@NotNull ViewerUpdate update) {
+        final ConnectedPlayer viewer = update.viewer();
+        if (!viewer.isActive() || update.entries().isEmpty()) {
+            return;
+        }
+
+        final ProtocolVersion version = viewer.getProtocolVersion();
+        final EnumSet<UpsertPlayerInfoPacket.Action> actions = EnumSet.noneOf(UpsertPlayerInfoPacket.Action.class);
+        final List<UpsertPlayerInfoPacket.Entry> entries = update.entries().values().stream()
+                .map(entryUpdate -> {
+                    actions.addAll(entryUpdate.actions());
+                    return toPacketEntry(entryUpdate.entry(), viewer);
+                })
+                .toList();
+        if (version.lessThan(ProtocolVersion.MINECRAFT_1_21_2)) {
+            actions.remove(UpsertPlayerInfoPacket.Action.UPDATE_LIST_ORDER);
+        }
+
+        try {
+            viewer.getConnection().write(new UpsertPlayerInfoPacket(actions, entries));
+        } catch (Throwable e) {
+            plugin.getLogger().error("Failed to send batched tab list update to {}", viewer.getUsername(), e);
+        }
+    }
+
+    // Packet entries always carry the entry's current state, so every action in the batch can be written for them
+    @NotNull
+    private UpsertPlayerInfoPacket.Entry toPacketEntry(@NotNull TabListEntry entry, @NotNull ConnectedPlayer viewer) {
+        final UpsertPlayerInfoPacket.Entry packetEntry = new UpsertPlayerInfoPacket.Entry(entry.getProfile().getId());
+        packetEntry.setDisplayName(entry.getDisplayNameComponent()
+                .map(component -> componentHolders.get(viewer, component))
+                .orElse(null));
+        packetEntry.setLatency(entry.getLatency());
+        packetEntry.setListed(entry.isListed());
+        packetEntry.setListOrder(entry.getListOrder());
+        return packetEntry;
+    }
+
+    private record ViewerUpdate(@NotNull ConnectedPlayer viewer, @NotNull Map<UUID, EntryUpdate> entries) {
+        private ViewerUpdate(@NotNull ConnectedPlayer viewer) {
+            this(viewer, Maps.newLinkedHashMap());
+        }
+    }
+
+    private record EntryUpdate(@NotNull TabListEntry entry, @NotNull EnumSet<UpsertPlayerInfoPacket.Action> actions) {
+        private EntryUpdate(@NotNull TabListEntry entry) {
+            this(entry, EnumSet.noneOf(UpsertPlayerInfoPacket.Action.class));
+        }
+    }
+
+}
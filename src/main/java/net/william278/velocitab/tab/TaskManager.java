@@ -21,160 +21,187 @@ package net.william278.velocitab.tab;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import lombok.Getter;
 import net.william278.velocitab.Velocitab;
 import net.william278.velocitab.config.Group;
 import net.william278.velocitab.player.TabPlayer;
 import net.william278.velocitab.util.DebugSystem;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.event.Level;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
+import java.util.UUID;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 
+/**
+ * Schedules the periodic updates of each group.
+ * <p>
+ * Groups are sharded across a pool of single-threaded workers, a group is always updated by the same worker so its
+ * updates never run concurrently with each other. Tasks which don't belong to a group run on the first worker.
+ */
 public class TaskManager {
 
+    private static final long LAG_PROBE_RATE = 1000;
+    // Lowest period of a group's update tasks, faster configured rates are raised to it to keep update cycles bounded
+    private static final long MIN_UPDATE_RATE = 200;
+
     private final Velocitab plugin;
-    private final Map<Group, List<ScheduledFuture<?>>> groupTasks;
-    private final List<ScheduledFuture<?>> otherTasks;
+    private final Map<Group, List<PeriodicTask>> groupTasks;
+    private final List<PeriodicTask> otherTasks;
+    private final List<Shard> shards;
     private final ScheduledExecutorService processThread;
+    @Getter
+    private final QualityController qualityController;
+    private final TimerWheel timerWheel;
 
     public TaskManager(@NotNull Velocitab plugin) {
         this.plugin = plugin;
         this.groupTasks = Maps.newConcurrentMap();
-        this.otherTasks = Lists.newArrayList();
-        this.processThread = createProcessThread();
+        this.otherTasks = Lists.newCopyOnWriteArrayList();
+        this.shards = createShards(Math.max(1, plugin.getSettings().getTaskManagerThreads()));
+        this.processThread = shards.get(0).executor;
+        this.qualityController = new QualityController(plugin);
+        this.timerWheel = new TimerWheel(plugin);
+        processThread.scheduleAtFixedRate(timerWheel::tick, TimerWheel.TICK_MILLIS, TimerWheel.TICK_MILLIS, TimeUnit.MILLISECONDS);
+        processThread.scheduleAtFixedRate(qualityController::evaluate,
+                QualityController.WINDOW_MILLIS, QualityController.WINDOW_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     @NotNull
-    private ScheduledExecutorService createProcessThread() {
+    private List<Shard> createShards(int count) {
         final Thread.UncaughtExceptionHandler handler = (t, e) -> plugin.log(Level.ERROR, "Uncaught exception in task manager thread", e);
-        return Executors.newSingleThreadScheduledExecutor(r -> {
-            final Thread thread = new Thread(r, "Velocitab Task Manager");
-            thread.setUncaughtExceptionHandler(handler);
-            return thread;
-        });
+        final List<Shard> shards = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            final String name = count == 1 ? "Velocitab Task Manager" : "Velocitab Task Manager #" + i;
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                final Thread thread = new Thread(r, name);
+                thread.setUncaughtExceptionHandler(handler);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            shards.add(new Shard(i, executor));
+        }
+        shards.forEach(this::probeLag);
+        return shards;
+    }
+
+    // Measures how late the tasks of a shard start, by comparing when a fixed rate task runs to when it was due
+    private void probeLag(@NotNull Shard shard) {
+        final long[] due = {System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LAG_PROBE_RATE)};
+        shard.executor.scheduleAtFixedRate(() -> {
+            final long lag = Math.max(0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - due[0]));
+            due[0] += TimeUnit.MILLISECONDS.toNanos(LAG_PROBE_RATE);
+            shard.lag = lag;
+            if (lag > 100) {
+                DebugSystem.log(DebugSystem.DebugLevel.DEBUG, "Task manager worker #{} is running {}ms behind", shard.index, lag);
+            }
+        }, LAG_PROBE_RATE, LAG_PROBE_RATE, TimeUnit.MILLISECONDS);
+    }
+
+    @NotNull
+    private ScheduledExecutorService getExecutor(@NotNull Group group) {
+        return shards.get(Math.floorMod(group.name().hashCode(), shards.size())).executor;
+    }
+
+    // The worker of the player's group, or the process thread if the player isn't in a group
+    @NotNull
+    private ScheduledExecutorService getExecutor(@NotNull UUID player) {
+        return plugin.getTabList().getTabPlayer(player)
+                .map(tabPlayer -> getExecutor(tabPlayer.getGroup()))
+                .orElse(processThread);
+    }
+
+    /**
+     * Get the status of each worker
+     *
+     * @return The number of tasks waiting to run and the last measured lag of each worker, in order
+     */
+    @NotNull
+    public List<ShardStatus> getShardStatus() {
+        return shards.stream()
+                .map(shard -> new ShardStatus(shard.index, getQueueDepth(shard.executor), shard.lag))
+                .toList();
+    }
+
+    // Periodic tasks are always queued, only those which are due count as waiting
+    private static int getQueueDepth(@NotNull ScheduledThreadPoolExecutor executor) {
+        int depth = 0;
+        for (Runnable task : executor.getQueue()) {
+            if (task instanceof Delayed delayed && delayed.getDelay(TimeUnit.MILLISECONDS) <= 0) {
+                depth++;
+            }
+        }
+        return depth;
     }
 
     protected void cancelAllTasks() {
-        groupTasks.values().forEach(c -> c.forEach(t -> t.cancel(true)));
+        groupTasks.values().forEach(c -> c.forEach(PeriodicTask::cancel));
         groupTasks.clear();
-        otherTasks.forEach(t -> t.cancel(true));
+        otherTasks.forEach(PeriodicTask::cancel);
         otherTasks.clear();
     }
 
     public void close() {
         try {
             cancelAllTasks();
-            processThread.shutdownNow();
+            shards.forEach(shard -> shard.executor.shutdownNow());
         } catch (Throwable e) {
             plugin.getLogger().error("Failed to close task manager", e);
         }
     }
 
     protected void updatePeriodically(@NotNull Group group) {
-        final List<ScheduledFuture<?>> tasks = groupTasks.computeIfAbsent(group, g -> Lists.newArrayList());
+        final List<PeriodicTask> tasks = groupTasks.computeIfAbsent(group, g -> Lists.newArrayList());
+        final ScheduledExecutorService executor = getExecutor(group);
+        final BooleanSupplier empty = () -> group.getTabPlayers(plugin, false).isEmpty();
         if (group.headerFooterUpdateRate() > 0) {
-            final ScheduledFuture<?> headerFooterTask = processThread.scheduleAtFixedRate(() -> {
-                        try {
-                            final long startTime = System.currentTimeMillis();
-                            plugin.getTabList().updateHeaderFooter(group);
-                            final long endTime = System.currentTimeMillis();
-                            final long time = endTime - startTime;
-                            if (time > 30) {
-                                DebugSystem.log(DebugSystem.DebugLevel.DEBUG, "Updated header/footer for group {} took {}ms", group.name(), time);
-                            }
-                        } catch (Throwable e) {
-                            plugin.log(Level.ERROR, "Failed to update header/footer for group " + group.name(), e);
-                        }
-                    },
-                    250,
-                    Math.max(200, group.headerFooterUpdateRate()),
-                    TimeUnit.MILLISECONDS);
-            tasks.add(headerFooterTask);
+            tasks.add(new PeriodicTask("header/footer for group " + group.name(), executor, true,
+                    250, Math.max(MIN_UPDATE_RATE, group.headerFooterUpdateRate()), 30,
+                    empty, () -> plugin.getTabList().updateHeaderFooter(group)));
         }
 
         if (group.formatUpdateRate() > 0 && !plugin.getSettings().isShowAllPlayersFromAllGroups()) {
-            final ScheduledFuture<?> formatTask = processThread.scheduleAtFixedRate(() -> {
-                        try {
-                            final long startTime = System.currentTimeMillis();
-                            plugin.getTabList().updateGroupNames(group);
-                            final long endTime = System.currentTimeMillis();
-                            final long time = endTime - startTime;
-                            if (time > 50) {
-                                DebugSystem.log(DebugSystem.DebugLevel.DEBUG, "Updated format for group {} took {}ms", group.name(), time);
-                            }
-                        } catch (Throwable e) {
-                            plugin.log(Level.ERROR, "Failed to update format for group " + group.name(), e);
-                        }
+            final int reconcileEvery = getReconcileInterval(group.formatUpdateRate());
+            final AtomicInteger formatRuns = new AtomicInteger();
+            final AtomicBoolean reconcile = new AtomicBoolean();
+            tasks.add(new PeriodicTask("format for group " + group.name(), executor, true,
+                    500, Math.max(MIN_UPDATE_RATE, group.formatUpdateRate()), 50,
+                    () -> {
+                        // Every tick counts towards the next full pass, skipped ones included
+                        reconcile.set(formatRuns.incrementAndGet() % reconcileEvery == 0);
+                        return !reconcile.get() && !plugin.getTabList().hasPendingNames(group.getTabPlayers(plugin));
                     },
-                    500,
-                    Math.max(200, group.formatUpdateRate()),
-                    TimeUnit.MILLISECONDS);
-            tasks.add(formatTask);
+                    () -> plugin.getTabList().updateGroupNames(group, reconcile.get())));
         }
 
         if (group.nametagUpdateRate() > 0) {
-            final ScheduledFuture<?> nametagTask = processThread.scheduleAtFixedRate(() -> {
-                        try {
-                            final long startTime = System.currentTimeMillis();
-                            plugin.getTabList().updateSorting(group);
-                            final long endTime = System.currentTimeMillis();
-                            final long time = endTime - startTime;
-                            if (time > 100) {
-                                DebugSystem.log(DebugSystem.DebugLevel.DEBUG, "Updated nametags/sorting for group {} took {}ms", group.name(), time);
-                            }
-                        } catch (Throwable e) {
-                            plugin.log(Level.ERROR, "Failed to update nametags/sorting for group " + group.name(), e);
-                        }
-                    },
-                    750,
-                    Math.max(200, group.nametagUpdateRate()),
-                    TimeUnit.MILLISECONDS);
-            tasks.add(nametagTask);
+            tasks.add(new PeriodicTask("nametags/sorting for group " + group.name(), executor, true,
+                    750, Math.max(MIN_UPDATE_RATE, group.nametagUpdateRate()), 100,
+                    empty, () -> plugin.getTabList().updateSorting(group)));
         }
 
         if (group.placeholderUpdateRate() > 0) {
-            final ScheduledFuture<?> updateTask = processThread.scheduleAtFixedRate(() -> {
-                        try {
-                            final long startTime = System.currentTimeMillis();
-                            updatePlaceholders(group);
-                            final long endTime = System.currentTimeMillis();
-                            final long time = endTime - startTime;
-                            if (time > 10) {
-                                DebugSystem.log(DebugSystem.DebugLevel.DEBUG, "Updated placeholders for group {} took {}ms", group.name(), time);
-                            }
-                        } catch (Throwable e) {
-                            plugin.log(Level.ERROR, "Failed to update placeholders for group " + group.name(), e);
-                        }
-                    },
-                    1000,
-                    Math.max(200, group.placeholderUpdateRate()),
-                    TimeUnit.MILLISECONDS);
-            tasks.add(updateTask);
-        }
-
-        final ScheduledFuture<?> latencyTask = processThread.scheduleAtFixedRate(() -> {
-                    try {
-                        final long startTime = System.currentTimeMillis();
-                        updateLatency(group);
-                        final long endTime = System.currentTimeMillis();
-                        final long time = endTime - startTime;
-                        if (time > 25) {
-                            DebugSystem.log(DebugSystem.DebugLevel.DEBUG, "Updated latency for group {} took {}ms", group.name(), time);
-                        }
-                    } catch (Throwable e) {
-                        plugin.log(Level.ERROR, "Failed to update latency for group " + group.name(), e);
-                    }
-                },
-                1250,
-                5000,
-                TimeUnit.MILLISECONDS);
+            tasks.add(new PeriodicTask("placeholders for group " + group.name(), executor, false,
+                    1000, Math.max(MIN_UPDATE_RATE, group.placeholderUpdateRate()), 10,
+                    empty, () -> updatePlaceholders(group)));
+        }
 
-        tasks.add(latencyTask);
+        if (group.latencyUpdateRate() > 0) {
+            tasks.add(new PeriodicTask("latency for group " + group.name(), executor, false,
+                    1250, Math.max(MIN_UPDATE_RATE, group.latencyUpdateRate()), 25,
+                    empty, () -> updateLatency(group)));
+        }
     }
 
     private void updatePlaceholders(@NotNull Group group) {
@@ -193,11 +220,19 @@ public class TaskManager {
             return;
         }
 
-        groupPlayers.forEach(player -> {
-            final int latency = (int) player.getPlayer().getPing();
+        final boolean exact = plugin.getSettings().isSendExactLatency();
+        final int hysteresis = plugin.getSettings().getLatencyHysteresis();
+        final TabListUpdateBuffer updateBuffer = plugin.getTabList().getUpdateBuffer();
+        updateBuffer.batch(() -> groupPlayers.forEach(player -> {
+            final int latency = Math.max((int) player.getPlayer().getPing(), 0);
+            if (!player.updateLatency(latency, exact, hysteresis)) {
+                return;
+            }
+
             groupPlayers.forEach(p -> p.getPlayer().getTabList().getEntry(player.getPlayer().getUniqueId())
-                    .ifPresent(entry -> entry.setLatency(Math.max(latency, 0))));
-        });
+                    .filter(entry -> entry.getLatency() != latency)
+                    .ifPresent(entry -> updateBuffer.setLatency(p.getPlayer(), entry, latency)));
+        }));
     }
 
     public void loadShowAllPlayersFromAllGroups() {
@@ -210,12 +245,50 @@ public class TaskManager {
             return;
         }
 
-        final ScheduledFuture<?> showAllTask = processThread.scheduleAtFixedRate(() -> {
-            final List<TabPlayer> players = List.copyOf(plugin.getTabList().getPlayers().values());
-            plugin.getTabList().updateNames(players);
-        }, 1500, minDelay, TimeUnit.MILLISECONDS);
+        final int reconcileEvery = getReconcileInterval(minDelay);
+        final AtomicInteger runs = new AtomicInteger();
+        final AtomicBoolean reconcile = new AtomicBoolean();
+        otherTasks.add(new PeriodicTask("format for all groups", processThread, true, 1500, minDelay, 50,
+                () -> {
+                    reconcile.set(runs.incrementAndGet() % reconcileEvery == 0);
+                    return !reconcile.get() && !plugin.getTabList().hasPendingNames(plugin.getTabList().getPlayers().values());
+                },
+                () -> plugin.getTabList().updateNames(List.copyOf(plugin.getTabList().getPlayers().values()), reconcile.get())));
+    }
+
+    /**
+     * Get the number of ticks of the periodic tasks
+     *
+     * @return How many ticks ran, were skipped as there was nothing to update, or were missed after a run overran
+     */
+    @NotNull
+    public TickStatus getTickStatus() {
+        long runs = 0;
+        long skipped = 0;
+        long missed = 0;
+        for (PeriodicTask task : getPeriodicTasks()) {
+            runs += task.runs.get();
+            skipped += task.skipped.get();
+            missed += task.missed.get();
+        }
+        return new TickStatus(runs, skipped, missed);
+    }
+
+    @NotNull
+    private List<PeriodicTask> getPeriodicTasks() {
+        final List<PeriodicTask> tasks = Lists.newArrayList(otherTasks);
+        groupTasks.values().forEach(tasks::addAll);
+        return tasks;
+    }
+
+    // Number of format updates between two full display name passes
+    private int getReconcileInterval(long updateRate) {
+        final long reconcileRate = plugin.getSettings().getDisplayNameReconciliationRate();
+        if (reconcileRate <= 0) {
+            return 1;
+        }
 
-        otherTasks.add(showAllTask);
+        return (int) Math.max(1, reconcileRate / Math.max(MIN_UPDATE_RATE, updateRate));
     }
 
     public void run(@NotNull Runnable runnable) {
@@ -226,11 +299,192 @@ public class TaskManager {
         }
     }
 
-    public void runDelayed(@NotNull Runnable runnable, long delay, @NotNull TimeUnit timeUnit) {
+    /**
+     * Run a task of a group on the worker which updates the group, so it never runs concurrently with its updates
+     *
+     * @param group    The group the task belongs to
+     * @param runnable The task
+     */
+    public void run(@NotNull Group group, @NotNull Runnable runnable) {
         try {
-            processThread.schedule(runnable, delay, timeUnit);
+            getExecutor(group).execute(runnable);
+        } catch (RejectedExecutionException e) {
+            DebugSystem.log(DebugSystem.DebugLevel.DEBUG, "Skipped task of group {} as the task manager is closed", group.name());
         } catch (Throwable e) {
-            plugin.log(Level.ERROR, "Failed to run delayed task", e);
+            plugin.log(Level.ERROR, "Failed to run task", e);
         }
     }
+
+    public void runDelayed(@NotNull Runnable runnable, long delay, @NotNull TimeUnit timeUnit) {
+        timerWheel.schedule(null, processThread, runnable, delay, timeUnit);
+    }
+
+    /**
+     * Run a task of a group after a delay, on the worker which updates the group
+     *
+     * @param group    The group the task belongs to
+     * @param runnable The task
+     * @param delay    The delay
+     * @param timeUnit The unit of the delay
+     */
+    public void runDelayed(@NotNull Group group, @NotNull Runnable runnable, long delay, @NotNull TimeUnit timeUnit) {
+        timerWheel.schedule(null, getExecutor(group), runnable, delay, timeUnit);
+    }
+
+    /**
+     * Run a task of a player after a delay, on the worker which updates the player's group.
+     * The task is cancelled if the player disconnects before it is due.
+     *
+     * @param player   The player the task belongs to
+     * @param runnable The task
+     * @param delay    The delay
+     * @param timeUnit The unit of the delay
+     */
+    public void runDelayed(@NotNull UUID player, @NotNull Runnable runnable, long delay, @NotNull TimeUnit timeUnit) {
+        timerWheel.schedule(player, getExecutor(player), runnable, delay, timeUnit);
+    }
+
+    /**
+     * Run a task of a player in a group after a delay, on the worker which updates the group.
+     * The task is cancelled if the player disconnects before it is due.
+     *
+     * @param group    The group the task belongs to
+     * @param player   The player the task belongs to
+     * @param runnable The task
+     * @param delay    The delay
+     * @param timeUnit The unit of the delay
+     */
+    public void runDelayed(@NotNull Group group, @NotNull UUID player, @NotNull Runnable runnable, long delay,
+                           @NotNull TimeUnit timeUnit) {
+        timerWheel.schedule(player, getExecutor(group), runnable, delay, timeUnit);
+    }
+
+    /**
+     * Cancel every delayed task of a player
+     *
+     * @param player The player
+     */
+    public void cancelDelayed(@NotNull UUID player) {
+        timerWheel.cancelAll(player);
+    }
+
+    /**
+     * A task which reschedules itself after each run.
+     * <p>
+     * Runs are due at a fixed rate, but when a run ends after the next one was due, the missed runs are coalesced and
+     * the next run waits a full period, like a fixed delay task, instead of queueing runs back to back. A run is
+     * skipped when there is nothing to update.
+     */
+    private final class PeriodicTask implements Runnable {
+
+        private final String name;
+        private final ScheduledExecutorService executor;
+        private final boolean stretchable;
+        private final long period;
+        private final long slowThreshold;
+        private final BooleanSupplier idle;
+        private final Runnable task;
+        private final AtomicLong runs;
+        private final AtomicLong skipped;
+        private final AtomicLong missed;
+        private long due;
+        private volatile boolean cancelled;
+        @Nullable
+        private volatile ScheduledFuture<?> future;
+
+        private PeriodicTask(@NotNull String name, @NotNull ScheduledExecutorService executor, boolean stretchable,
+                             long initialDelay, long period, long slowThreshold, @NotNull BooleanSupplier idle,
+                             @NotNull Runnable task) {
+            this.name = name;
+            this.executor = executor;
+            this.stretchable = stretchable;
+            this.period = TimeUnit.MILLISECONDS.toNanos(period);
+            this.slowThreshold = slowThreshold;
+            this.idle = idle;
+            this.task = task;
+            this.runs = new AtomicLong();
+            this.skipped = new AtomicLong();
+            this.missed = new AtomicLong();
+            this.due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(initialDelay);
+            schedule(TimeUnit.MILLISECONDS.toNanos(initialDelay));
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+
+            // Slowed down tasks are due less often while the quality is lowered
+            final long period = stretchable ? qualityController.stretch(this.period) : this.period;
+            final long startTime = System.nanoTime();
+            boolean ran = false;
+            try {
+                if (idle.getAsBoolean()) {
+                    skipped.incrementAndGet();
+                } else {
+                    task.run();
+                    runs.incrementAndGet();
+                    ran = true;
+                }
+            } catch (Throwable e) {
+                plugin.log(Level.ERROR, "Failed to update " + name, e);
+            }
+
+            final long endTime = System.nanoTime();
+            if (ran && stretchable) {
+                qualityController.record(endTime - startTime, period);
+            }
+            final long time = TimeUnit.NANOSECONDS.toMillis(endTime - startTime);
+            if (time > slowThreshold) {
+                DebugSystem.log(DebugSystem.DebugLevel.DEBUG, "Updated {} took {}ms", name, time);
+            }
+
+            due += period;
+            if (endTime > due) {
+                final long missedRuns = (endTime - due) / period + 1;
+                missed.addAndGet(missedRuns);
+                DebugSystem.log(DebugSystem.DebugLevel.DEBUG, "Update of {} overran, coalesced {} missed run(s)", name, missedRuns);
+                due = endTime + period;
+            }
+            schedule(due - endTime);
+        }
+
+        private void schedule(long delay) {
+            if (cancelled) {
+                return;
+            }
+            try {
+                future = executor.schedule(this, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // The task manager is closing
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            final ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(true);
+            }
+        }
+    }
+
+    public record TickStatus(long runs, long skipped, long missed) {
+    }
+
+    private static final class Shard {
+        private final int index;
+        private final ScheduledThreadPoolExecutor executor;
+        private volatile long lag;
+
+        private Shard(int index, @NotNull ScheduledThreadPoolExecutor executor) {
+            this.index = index;
+            this.executor = executor;
+        }
+    }
+
+    public record ShardStatus(int index, int queueDepth, long lag) {
+    }
+
 }
@@ -0,0 +1,292 @@
+/*
+ * This file is part of Velocitab, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.william278.velocitab.tab;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.william278.velocitab.Velocitab;
+import net.william278.velocitab.util.DebugSystem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.event.Level;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timing wheel for short one-shot delays, such as the per-player work scheduled around joins and quits.
+ * <p>
+ * Timeouts are hashed into a ring of buckets by the tick they are due at, so adding and cancelling one is O(1), and a
+ * timeout is only looked at again when the wheel reaches its bucket. Timeouts further away than one revolution wait
+ * for as many rounds. Timeouts can belong to a player, to cancel all of them at once when the player disconnects.
+ * <p>
+ * The wheel is advanced by {@link #tick()} from a single thread, which hands the expired tasks to the executor they
+ * were scheduled on, so a slow task never delays the tick. Other threads only queue the timeouts they add or cancel.
+ */
+public class TimerWheel {
+
+    public static final long TICK_MILLIS = 10;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private final Velocitab plugin;
+    private final Bucket[] buckets;
+    private final Queue<Timeout> added;
+    private final Queue<Timeout> cancelled;
+    private final Map<UUID, Set<Timeout>> owned;
+    private final AtomicInteger pending;
+    private final long startTime;
+    // The next tick to expire the bucket of
+    private long tick;
+
+    public TimerWheel(@NotNull Velocitab plugin) {
+        this.plugin = plugin;
+        this.buckets = new Bucket[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.added = new ConcurrentLinkedQueue<>();
+        this.cancelled = new ConcurrentLinkedQueue<>();
+        this.owned = Maps.newConcurrentMap();
+        this.pending = new AtomicInteger();
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Run a task once after a delay
+     *
+     * @param owner    The player the task belongs to, or {@code null}
+     * @param executor The executor to run the task on once it is due
+     * @param task     The task
+     * @param delay    The delay
+     * @param unit     The unit of the delay
+     * @return The timeout of the task
+     */
+    @NotNull
+    public Timeout schedule(@Nullable UUID owner, @NotNull Executor executor, @NotNull Runnable task, long delay,
+                            @NotNull TimeUnit unit) {
+        final long deadline = System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay));
+        final Timeout timeout = new Timeout(owner, executor, task, deadline);
+        if (owner != null) {
+            // Adding and cancelling are atomic per owner, so a task is never added to a set which was just cancelled
+            owned.compute(owner, (uuid, timeouts) -> {
+                final Set<Timeout> set = timeouts == null ? Sets.newHashSet() : timeouts;
+                set.add(timeout);
+                return set;
+            });
+        }
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Cancel every pending task of a player
+     *
+     * @param owner The player
+     */
+    public void cancelAll(@NotNull UUID owner) {
+        final Set<Timeout> timeouts = owned.remove(owner);
+        if (timeouts != null) {
+            timeouts.forEach(Timeout::cancel);
+        }
+    }
+
+    /**
+     * Get the number of tasks waiting to run
+     *
+     * @return The number of pending tasks
+     */
+    public int size() {
+        return pending.get();
+    }
+
+    /**
+     * Advance the wheel to the current time, running every task which became due
+     */
+    protected void tick() {
+        final long target = (System.nanoTime() - startTime) / TICK_NANOS;
+        removeCancelled();
+        addQueued();
+        while (tick <= target) {
+            expire(buckets[(int) (tick & MASK)]);
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void addQueued() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state.get() != Timeout.PENDING) {
+                continue;
+            }
+
+            // Round up so that a task never runs before its deadline, and run overdue tasks on the next tick
+            final long due = Math.max((timeout.deadline + TICK_NANOS - 1) / TICK_NANOS, tick);
+            timeout.rounds = (due - tick) / WHEEL_SIZE;
+            buckets[(int) (due & MASK)].add(timeout);
+        }
+    }
+
+    private void expire(@NotNull Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                bucket.remove(timeout);
+                timeout.expire();
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * A task waiting in the wheel
+     */
+    public final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        @Nullable
+        private final UUID owner;
+        private final Executor executor;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state;
+        private long rounds;
+        @Nullable
+        private Bucket bucket;
+        @Nullable
+        private Timeout prev;
+        @Nullable
+        private Timeout next;
+
+        private Timeout(@Nullable UUID owner, @NotNull Executor executor, @NotNull Runnable task, long deadline) {
+            this.owner = owner;
+            this.executor = executor;
+            this.task = task;
+            this.deadline = deadline;
+            this.state = new AtomicInteger(PENDING);
+        }
+
+        /**
+         * Cancel the task if it didn't run yet
+         *
+         * @return {@code true} if the task was cancelled
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            release();
+            cancelled.add(this);
+            return true;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            release();
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        plugin.log(Level.ERROR, "Failed to run delayed task", e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                DebugSystem.log(DebugSystem.DebugLevel.DEBUG, "Skipped delayed task as the task manager is closed");
+            }
+        }
+
+        private void release() {
+            pending.decrementAndGet();
+            if (owner == null) {
+                return;
+            }
+            owned.computeIfPresent(owner, (uuid, timeouts) -> {
+                timeouts.remove(this);
+                return timeouts.isEmpty() ? null : timeouts;
+            });
+        }
+    }
+
+    // A doubly linked list of timeouts, only accessed by the ticking thread
+    private static final class Bucket {
+        @Nullable
+        private Timeout head;
+        @Nullable
+        private Timeout tail;
+
+        private void add(@NotNull Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(@NotNull Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+
+}
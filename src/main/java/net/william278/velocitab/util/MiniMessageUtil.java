@@ -19,63 +19,142 @@
 
 package net.william278.velocitab.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import lombok.Getter;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MiniMessageUtil {
 
     @Getter
     private static final MiniMessageUtil INSTANCE = new MiniMessageUtil();
 
-    private final Pattern legacyRGBPattern = Pattern.compile("#&[0-9a-fA-F]{6}");
-    private final Pattern legacyPattern = Pattern.compile("&[0-9a-fA-F]");
-    private final Pattern legacySectionPattern = Pattern.compile("§[0-9a-fA-F]");
-    private int errorsCount;
+    private static final int LEGACY_RGB_LENGTH = 8;
+
+    private final AtomicInteger errorsCount;
+    // Replacements of texts containing legacy formatting, which mostly come from the same config templates
+    private final Cache<String, Replacement> replacements;
 
     private MiniMessageUtil() {
-        errorsCount = 0;
+        errorsCount = new AtomicInteger();
+        replacements = CacheBuilder.newBuilder()
+                .maximumSize(1000)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
     }
 
+    /**
+     * Replace legacy formatting codes ({@code #&ffffff}, {@code &f} and {@code §f}), which MiniMessage doesn't support,
+     * with {@code *}
+     *
+     * @param text The text to check
+     * @return The text with legacy codes replaced, or the same instance if it has none
+     */
     @NotNull
     public String checkForErrors(@NotNull String text) {
-        final List<String> errors = Lists.newArrayList();
-        String copy = text;
-        copy = processLegacySections(errors, copy, legacyRGBPattern);
-        copy = processLegacySections(errors, copy, legacyPattern);
-        copy = processLegacySections(errors, copy, legacySectionPattern);
+        if (text.indexOf('&') == -1 && text.indexOf('§') == -1) {
+            return text;
+        }
+
+        Replacement replacement = replacements.getIfPresent(text);
+        if (replacement == null) {
+            replacement = replaceLegacyCodes(text);
+            replacements.put(text, replacement);
+        }
+        if (replacement.errors().isEmpty()) {
+            return text;
+        }
 
-        if (errorsCount > 0 && errorsCount % 10 == 0) {
-            errorsCount++;
+        final int errors = replacement.errors().size();
+        final int total = errorsCount.addAndGet(errors);
+        if (total / 10 != (total - errors) / 10) {
             DebugSystem.log(DebugSystem.DebugLevel.WARNING, "Found legacy formatting which is not supported if the formatter is set to MINIMESSAGE." +
-                    " Remove the following characters from your config or make sure placeholders don't contain them: " + errors + ". & and § are replaced with * to prevent issues with MINIMESSAGE.");
-            if(errorsCount > 100000) {
-                errorsCount = 0;
-            }
+                    " Remove the following characters from your config or make sure placeholders don't contain them: " + replacement.errors() + ". & and § are replaced with * to prevent issues with MINIMESSAGE.");
+        }
+        if (total > 100000) {
+            errorsCount.set(0);
         }
 
-        return copy;
+        return replacement.text();
     }
 
     @NotNull
-    private String processLegacySections(@NotNull List<String> errors, @NotNull String copy, @NotNull Pattern legacySectionPattern) {
-        final StringBuilder result = new StringBuilder();
-        final Matcher legacySectionMatcher = legacySectionPattern.matcher(copy);
-
-        while (legacySectionMatcher.find()) {
-            errors.add(legacySectionMatcher.group());
-            String matched = legacySectionMatcher.group();
-            String replaced = "*" + matched.substring(1);
-            legacySectionMatcher.appendReplacement(result, Matcher.quoteReplacement(replaced));
-            errorsCount++;
+    private Replacement replaceLegacyCodes(@NotNull String text) {
+        final List<String> errors = Lists.newArrayList();
+        char[] chars = null;
+        for (int i = 0; i < text.length() - 1; i++) {
+            final char c = text.charAt(i);
+            final boolean legacy = switch (c) {
+                case '#' -> isLegacyRGB(text, i);
+                case '&', '§' -> isHex(text.charAt(i + 1));
+                default -> false;
+            };
+            if (!legacy) {
+                continue;
+            }
+
+            errors.add(text.substring(i, c == '#' ? i + LEGACY_RGB_LENGTH : i + 2));
+            if (chars == null) {
+                chars = text.toCharArray();
+            }
+            chars[i] = '*';
         }
+        return new Replacement(chars == null ? text : new String(chars), List.copyOf(errors));
+    }
+
+    private static boolean isLegacyRGB(@NotNull String text, int index) {
+        if (index + LEGACY_RGB_LENGTH > text.length() || text.charAt(index + 1) != '&') {
+            return false;
+        }
+        for (int i = index + 2; i < index + LEGACY_RGB_LENGTH; i++) {
+            if (!isHex(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    /**
+     * Check whether a text contains tags which are not standard MiniMessage tags, such as MiniPlaceholders
+     * placeholders, whose output may depend on the player
+     *
+     * @param text The text to check
+     * @return {@code true} if the text contains a non-standard tag
+     */
+    public boolean hasCustomTags(@NotNull String text) {
+        int index = text.indexOf('<');
+        while (index != -1) {
+            if (index == 0 || text.charAt(index - 1) != '\\') {
+                int start = index + 1;
+                if (start < text.length() && (text.charAt(start) == '/' || text.charAt(start) == '!')) {
+                    start++;
+                }
+                int end = start;
+                while (end < text.length() && ":> ".indexOf(text.charAt(end)) == -1) {
+                    end++;
+                }
+                final String name = text.substring(start, end).toLowerCase(Locale.ROOT);
+                if (!name.isEmpty() && name.charAt(0) != '#' && !TagResolver.standard().has(name)) {
+                    return true;
+                }
+            }
+            index = text.indexOf('<', index + 1);
+        }
+        return false;
+    }
 
-        legacySectionMatcher.appendTail(result);
-        return result.toString();
+    private record Replacement(@NotNull String text, @NotNull List<String> errors) {
     }
 
 }
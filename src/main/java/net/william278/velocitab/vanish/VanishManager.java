@@ -73,8 +73,11 @@ public class VanishManager {
             return;
         }
 
-        plugin.getTabList().getVanishTabList().vanishPlayer(tabPlayer.get());
-        plugin.getScoreboardManager().vanishPlayer(tabPlayer.get());
+        tabPlayer.get().markDirty();
+        plugin.getTabList().getTaskManager().run(tabPlayer.get().getGroup(), () -> {
+            plugin.getTabList().getVanishTabList().vanishPlayer(tabPlayer.get());
+            plugin.getScoreboardManager().vanishPlayer(tabPlayer.get());
+        });
     }
 
     public void unVanishPlayer(@NotNull Player player) {
@@ -84,7 +87,10 @@ public class VanishManager {
             return;
         }
 
-        plugin.getTabList().getVanishTabList().unVanishPlayer(tabPlayer.get());
-        plugin.getScoreboardManager().unVanishPlayer(tabPlayer.get());
+        tabPlayer.get().markDirty();
+        plugin.getTabList().getTaskManager().run(tabPlayer.get().getGroup(), () -> {
+            plugin.getTabList().getVanishTabList().unVanishPlayer(tabPlayer.get());
+            plugin.getScoreboardManager().unVanishPlayer(tabPlayer.get());
+        });
     }
 }